@@ -1,10 +1,12 @@
 package cn.gavin.tdd.container;
 
 import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
 
 class SingletonProvider<T> implements ComponentProvider<T> {
-    private T singleton;
+    private volatile T singleton;
     private ComponentProvider<T> provider;
+    private final ReentrantLock lock = new ReentrantLock();
 
     public SingletonProvider(ComponentProvider<T> provider) {
         this.provider = provider;
@@ -12,8 +14,15 @@ class SingletonProvider<T> implements ComponentProvider<T> {
 
     @Override
     public T get(Context context) {
-        if (singleton == null) singleton = provider.get(context);
-        return singleton;
+        T instance = singleton;
+        if (instance != null) return instance;
+        lock.lock();
+        try {
+            if (singleton == null) singleton = provider.get(context);
+            return singleton;
+        } finally {
+            lock.unlock();
+        }
     }
 
     @Override
@@ -12,6 +12,10 @@ import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
@@ -198,6 +202,30 @@ public class ContextTest {
                 assertSame(context.get(ComponentRef.of(NotSingleton.class)).get(), context.get(ComponentRef.of(NotSingleton.class)).get());
             }
 
+            static class SlowSingleton {
+                static final AtomicInteger created = new AtomicInteger();
+
+                public SlowSingleton() throws InterruptedException {
+                    created.incrementAndGet();
+                    Thread.sleep(50);
+                }
+            }
+
+            @Test
+            public void should_create_singleton_once_if_retrieved_concurrently() {
+                config.component(SlowSingleton.class, SlowSingleton.class, new SingletonLiteral());
+                Context context = config.getContext();
+                SlowSingleton.created.set(0);
+
+                ExecutorService executor = Executors.newFixedThreadPool(4);
+                List<CompletableFuture<SlowSingleton>> instances = IntStream.range(0, 4)
+                        .mapToObj(i -> CompletableFuture.supplyAsync(() -> context.get(ComponentRef.of(SlowSingleton.class)).get(), executor)).toList();
+
+                assertEquals(1, instances.stream().map(CompletableFuture::join).distinct().count());
+                assertEquals(1, SlowSingleton.created.get());
+                executor.shutdown();
+            }
+
             @Test
             public void should_retrieve_scope_annotation_from_component() {
                 config.component(Dependency.class, SingletonAnnotated.class);
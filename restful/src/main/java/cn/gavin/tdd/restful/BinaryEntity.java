@@ -0,0 +1,159 @@
+package cn.gavin.tdd.restful;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+abstract class BinaryEntity implements Closeable {
+    static BinaryEntity of(Object entity) throws IOException {
+        if (entity instanceof File file) return new FileEntity(FileChannel.open(file.toPath(), StandardOpenOption.READ));
+        if (entity instanceof Path path) return new FileEntity(FileChannel.open(path, StandardOpenOption.READ));
+        if (entity instanceof FileChannel channel) return new FileEntity(channel);
+        if (entity instanceof byte[] bytes) return new BufferEntity(ByteBuffer.wrap(bytes));
+        if (entity instanceof ByteBuffer buffer) return new BufferEntity(buffer.duplicate());
+        return null;
+    }
+
+    static boolean isBuffer(Object entity) {
+        return entity instanceof byte[] || entity instanceof ByteBuffer;
+    }
+
+    abstract long length();
+
+    boolean isMappable(long count) {
+        return count <= Integer.MAX_VALUE;
+    }
+
+    abstract ByteBuffer slice(long start, long count) throws IOException;
+
+    abstract void transferTo(OutputStream stream, long start, long count) throws IOException;
+
+    @Override
+    public void close() throws IOException {
+    }
+}
+
+class FileEntity extends BinaryEntity {
+    static final int mappingThreshold = 64 * 1024;
+
+    private final FileChannel channel;
+    private final long position;
+    private final long length;
+
+    FileEntity(FileChannel channel) throws IOException {
+        this.channel = channel;
+        this.position = channel.position();
+        this.length = Math.max(0, channel.size() - position);
+    }
+
+    @Override
+    long length() {
+        return length;
+    }
+
+    @Override
+    ByteBuffer slice(long start, long count) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, position + start, count);
+    }
+
+    boolean isSmall(long count) {
+        return count < mappingThreshold;
+    }
+
+    void copyTo(OutputStream stream, long start, long count, BufferPool buffers) throws IOException {
+        byte[] buffer = buffers.acquire();
+        try {
+            ReadableByteChannel source = channel(start, count);
+            for (ByteBuffer window = ByteBuffer.wrap(buffer); source.read(window.clear()) > 0; )
+                stream.write(buffer, 0, window.position());
+            stream.flush();
+        } finally {
+            buffers.release(buffer);
+        }
+    }
+
+    ReadableByteChannel channel(long start, long count) {
+        return new RangeChannel(position + start, position + start + count);
+    }
+
+    @Override
+    void transferTo(OutputStream stream, long start, long count) throws IOException {
+        WritableByteChannel target = stream instanceof WritableByteChannel writable ? writable : Channels.newChannel(stream);
+        for (long sent = 0; sent < count; ) {
+            long transferred = channel.transferTo(position + start + sent, count - sent, target);
+            if (transferred <= 0 && channel.size() <= position + start + sent) break;
+            sent += transferred;
+        }
+        stream.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private class RangeChannel implements ReadableByteChannel {
+        private final long end;
+        private long next;
+
+        RangeChannel(long start, long end) {
+            this.next = start;
+            this.end = end;
+        }
+
+        @Override
+        public int read(ByteBuffer buffer) throws IOException {
+            if (next >= end) return -1;
+            ByteBuffer window = buffer.remaining() > end - next ? buffer.slice().limit((int) (end - next)) : buffer;
+            int read = channel.read(window, next);
+            if (read < 0) return -1;
+            if (window != buffer) buffer.position(buffer.position() + read);
+            next += read;
+            return read;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return channel.isOpen();
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
+
+class BufferEntity extends BinaryEntity {
+    private final ByteBuffer buffer;
+
+    BufferEntity(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    @Override
+    long length() {
+        return buffer.remaining();
+    }
+
+    @Override
+    ByteBuffer slice(long start, long count) {
+        return buffer.slice(buffer.position() + (int) start, (int) count);
+    }
+
+    @Override
+    void transferTo(OutputStream stream, long start, long count) throws IOException {
+        ByteBuffer slice = slice(start, count);
+        if (slice.hasArray()) stream.write(slice.array(), slice.arrayOffset(), slice.remaining());
+        else Channels.newChannel(stream).write(slice);
+        stream.flush();
+    }
+}
@@ -0,0 +1,158 @@
+package cn.gavin.tdd.restful;
+
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+class BoundedCache<K, V> {
+    private final int maximumSize;
+    private final Map<K, V> entries = new ConcurrentHashMap<>();
+    private final LinkedHashSet<K> order = new LinkedHashSet<>();
+    private final FrequencySketch sketch;
+    private final ReentrantLock admission = new ReentrantLock();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public BoundedCache(int maximumSize) {
+        if (maximumSize <= 0) throw new IllegalArgumentException("maximum size must be positive");
+        this.maximumSize = maximumSize;
+        this.sketch = new FrequencySketch(maximumSize);
+    }
+
+    public V get(K key) {
+        sketch.increment(key);
+        V value = entries.get(key);
+        if (value == null) misses.increment();
+        else hits.increment();
+        return value;
+    }
+
+    public void put(K key, V value) {
+        admission.lock();
+        try {
+            if (entries.replace(key, value) != null) return;
+            if (entries.size() >= maximumSize && !evictFor(key)) return;
+            entries.put(key, value);
+            order.add(key);
+        } finally {
+            admission.unlock();
+        }
+    }
+
+    public void invalidate(K key) {
+        admission.lock();
+        try {
+            if (entries.remove(key) != null) order.remove(key);
+        } finally {
+            admission.unlock();
+        }
+    }
+
+    public void invalidate(K key, V value) {
+        admission.lock();
+        try {
+            if (entries.remove(key, value)) order.remove(key);
+        } finally {
+            admission.unlock();
+        }
+    }
+
+    public void invalidateAll() {
+        admission.lock();
+        try {
+            entries.clear();
+            order.clear();
+        } finally {
+            admission.unlock();
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    public double hitRate() {
+        long hit = hitCount();
+        long total = hit + missCount();
+        return total == 0 ? 0 : (double) hit / total;
+    }
+
+    private boolean evictFor(K candidate) {
+        Iterator<K> oldest = order.iterator();
+        if (!oldest.hasNext()) return true;
+        K victim = oldest.next();
+        oldest.remove();
+        if (sketch.frequency(candidate) > sketch.frequency(victim)) {
+            entries.remove(victim);
+            return true;
+        }
+        order.add(victim);
+        return false;
+    }
+
+    static class FrequencySketch {
+        private static final int depth = 4;
+        private static final int maximumCount = 15;
+        private static final int[] seeds = {0x97cb3127, 0xc2b2ae35, 0x85ebca6b, 0x27d4eb2f};
+
+        private final AtomicIntegerArray table;
+        private final int width;
+        private final int mask;
+        private final int sampleSize;
+        private final AtomicInteger additions = new AtomicInteger();
+
+        FrequencySketch(int maximumSize) {
+            this.width = Integer.highestOneBit(Math.max(16, maximumSize * 2 - 1)) << 1;
+            this.table = new AtomicIntegerArray(depth * width);
+            this.mask = width - 1;
+            this.sampleSize = maximumSize * 10;
+        }
+
+        void increment(Object key) {
+            int hash = spread(key.hashCode());
+            boolean added = false;
+            for (int i = 0; i < depth; i++) {
+                int slot = i * width + index(hash, i);
+                if (table.getAndUpdate(slot, count -> Math.min(count + 1, maximumCount)) < maximumCount) added = true;
+            }
+            if (added && additions.incrementAndGet() == sampleSize) reset();
+        }
+
+        int frequency(Object key) {
+            int hash = spread(key.hashCode());
+            int frequency = maximumCount;
+            for (int i = 0; i < depth; i++)
+                frequency = Math.min(frequency, table.get(i * width + index(hash, i)));
+            return frequency;
+        }
+
+        private void reset() {
+            for (int i = 0; i < table.length(); i++) table.getAndUpdate(i, count -> count >>> 1);
+            additions.set(0);
+        }
+
+        private int index(int hash, int i) {
+            int h = hash * seeds[i];
+            return (h ^ (h >>> 16)) & mask;
+        }
+
+        private static int spread(int hash) {
+            hash ^= hash >>> 17;
+            hash *= 0xed5ad4bb;
+            return hash ^ (hash >>> 11);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package cn.gavin.tdd.restful;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class BufferPool {
+    private final int bufferSize;
+    private final int maximumPooled;
+    private final Queue<byte[]> buffers = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pooled = new AtomicInteger();
+
+    public BufferPool(int bufferSize, int maximumPooled) {
+        if (bufferSize <= 0) throw new IllegalArgumentException("buffer size must be positive");
+        this.bufferSize = bufferSize;
+        this.maximumPooled = maximumPooled;
+    }
+
+    public byte[] acquire() {
+        byte[] buffer = buffers.poll();
+        if (buffer == null) return new byte[bufferSize];
+        pooled.decrementAndGet();
+        return buffer;
+    }
+
+    public void release(byte[] buffer) {
+        if (buffer.length != bufferSize) return;
+        if (pooled.incrementAndGet() > maximumPooled) {
+            pooled.decrementAndGet();
+            return;
+        }
+        buffers.offer(buffer);
+    }
+
+    public int pooled() {
+        return pooled.get();
+    }
+
+    public PooledOutputStream newOutputStream() {
+        return new PooledOutputStream(this, Integer.MAX_VALUE, null);
+    }
+
+    public PooledOutputStream newOutputStream(int maximumBuffered, Overflow overflow) {
+        if (maximumBuffered <= 0) throw new IllegalArgumentException("maximum buffered must be positive");
+        return new PooledOutputStream(this, maximumBuffered, overflow);
+    }
+
+    interface Overflow {
+        OutputStream open() throws IOException;
+    }
+
+    static class PooledOutputStream extends OutputStream {
+        private final BufferPool pool;
+        private final int maximumBuffered;
+        private final Overflow overflow;
+        private final List<byte[]> buffers = new ArrayList<>();
+        private OutputStream spilled;
+        private int position;
+        private long size;
+
+        PooledOutputStream(BufferPool pool, int maximumBuffered, Overflow overflow) {
+            this.pool = pool;
+            this.maximumBuffered = maximumBuffered;
+            this.overflow = overflow;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            current()[position++] = (byte) b;
+            size++;
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            while (length > 0) {
+                byte[] buffer = current();
+                int count = Math.min(length, buffer.length - position);
+                System.arraycopy(bytes, offset, buffer, position, count);
+                position += count;
+                offset += count;
+                length -= count;
+                size += count;
+            }
+        }
+
+        private byte[] current() throws IOException {
+            if (buffers.isEmpty() || position == buffers.get(buffers.size() - 1).length) {
+                if (buffers.size() == maximumBuffered && overflow != null) spill();
+                buffers.add(pool.acquire());
+                position = 0;
+            }
+            return buffers.get(buffers.size() - 1);
+        }
+
+        private void spill() throws IOException {
+            if (spilled == null) spilled = overflow.open();
+            for (int i = 0; i < buffers.size(); i++) spilled.write(buffers.get(i), 0, length(i));
+            buffers.forEach(pool::release);
+            buffers.clear();
+            position = 0;
+        }
+
+        boolean isSpilled() {
+            return spilled != null;
+        }
+
+        void drain() throws IOException {
+            try {
+                spill();
+                spilled.close();
+            } finally {
+                release();
+            }
+        }
+
+        long size() {
+            return size;
+        }
+
+        int buffers() {
+            return buffers.size();
+        }
+
+        byte[] buffer(int index) {
+            return buffers.get(index);
+        }
+
+        int length(int index) {
+            return index == buffers.size() - 1 ? position : buffers.get(index).length;
+        }
+
+        void release() {
+            if (spilled instanceof Compression.DeflateStream deflate) deflate.abandon();
+            buffers.forEach(pool::release);
+            buffers.clear();
+            position = 0;
+            size = 0;
+        }
+    }
+}
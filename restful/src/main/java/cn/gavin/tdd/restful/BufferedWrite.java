@@ -0,0 +1,38 @@
+package cn.gavin.tdd.restful;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+
+import java.io.IOException;
+
+class BufferedWrite implements WriteListener {
+    private final ServletOutputStream output;
+    private final BufferPool.PooledOutputStream content;
+    private final Runnable completion;
+    private int next;
+
+    BufferedWrite(ServletOutputStream output, BufferPool.PooledOutputStream content, Runnable completion) {
+        this.output = output;
+        this.content = content;
+        this.completion = completion;
+    }
+
+    @Override
+    public void onWritePossible() throws IOException {
+        while (output.isReady()) {
+            if (next == content.buffers()) {
+                content.release();
+                completion.run();
+                return;
+            }
+            output.write(content.buffer(next), 0, content.length(next));
+            next++;
+        }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        content.release();
+        completion.run();
+    }
+}
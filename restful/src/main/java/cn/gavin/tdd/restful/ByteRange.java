@@ -0,0 +1,59 @@
+package cn.gavin.tdd.restful;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+record ByteRange(long start, long end) {
+    private static final int maximumRanges = 16;
+
+    long length() {
+        return end - start + 1;
+    }
+
+    String contentRange(long total) {
+        return "bytes " + start + "-" + end + "/" + total;
+    }
+
+    static List<ByteRange> parse(String header, long total) {
+        if (header == null || !header.regionMatches(true, 0, "bytes=", 0, 6)) return null;
+        String[] specs = header.substring(6).split(",");
+        if (specs.length > maximumRanges) return null;
+
+        List<ByteRange> ranges = new ArrayList<>();
+        for (String spec : specs) {
+            String value = spec.trim();
+            int dash = value.indexOf('-');
+            if (dash < 0) return null;
+            try {
+                if (dash == 0) {
+                    long suffix = Long.parseLong(value.substring(1));
+                    if (suffix > 0 && total > 0) ranges.add(new ByteRange(Math.max(0, total - suffix), total - 1));
+                    continue;
+                }
+                long start = Long.parseLong(value.substring(0, dash));
+                long end = dash == value.length() - 1 ? total - 1 : Long.parseLong(value.substring(dash + 1));
+                if (start < 0 || end < start && dash != value.length() - 1) return null;
+                if (start < total) ranges.add(new ByteRange(start, Math.min(end, total - 1)));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return coalesce(ranges);
+    }
+
+    private static List<ByteRange> coalesce(List<ByteRange> ranges) {
+        if (ranges.size() < 2) return ranges;
+        ranges.sort(Comparator.comparingLong(ByteRange::start));
+        List<ByteRange> coalesced = new ArrayList<>();
+        ByteRange current = ranges.get(0);
+        for (ByteRange range : ranges.subList(1, ranges.size())) {
+            if (range.start() > current.end() + 1) {
+                coalesced.add(current);
+                current = range;
+            } else if (range.end() > current.end()) current = new ByteRange(current.start(), range.end());
+        }
+        coalesced.add(current);
+        return coalesced;
+    }
+}
@@ -0,0 +1,15 @@
+package cn.gavin.tdd.restful;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a sub-resource locator whose returned resource is always routed by the locator's declared return type,
+ * so that matched routes through it can be kept in the router's route cache.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface CacheableRoute {
+}
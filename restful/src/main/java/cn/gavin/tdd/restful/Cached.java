@@ -0,0 +1,23 @@
+package cn.gavin.tdd.restful;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Marks a GET resource method whose response is a pure function of its path, the named query parameters and the
+ * negotiated media type, so that its serialized response can be served from memory until the time to live elapses.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Cached {
+    long ttl();
+
+    TimeUnit unit() default TimeUnit.SECONDS;
+
+    int maxEntries() default 1024;
+
+    String[] query() default {};
+}
@@ -0,0 +1,121 @@
+package cn.gavin.tdd.restful;
+
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.ext.ContextResolver;
+import jakarta.ws.rs.ext.ExceptionMapper;
+import jakarta.ws.rs.ext.MessageBodyReader;
+import jakarta.ws.rs.ext.MessageBodyWriter;
+import jakarta.ws.rs.ext.Providers;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+class CachedProviders implements Providers {
+    private final Providers providers;
+    private final BoundedCache<EntityKey, Optional<MessageBodyWriter<?>>> writers;
+    private final BoundedCache<EntityKey, Optional<MessageBodyReader<?>>> readers;
+    private final BoundedCache<Class<?>, Optional<ExceptionMapper<?>>> mappers;
+
+    public CachedProviders(Providers providers) {
+        this(providers, 512);
+    }
+
+    public CachedProviders(Providers providers, int maximumSize) {
+        this.providers = providers;
+        this.writers = new BoundedCache<>(maximumSize);
+        this.readers = new BoundedCache<>(maximumSize);
+        this.mappers = new BoundedCache<>(maximumSize);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> MessageBodyReader<T> getMessageBodyReader(Class<T> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        EntityKey key = new EntityKey(type, genericType, mediaType, annotations == null ? List.of() : Arrays.asList(annotations));
+        Optional<MessageBodyReader<?>> reader = readers.get(key);
+        if (reader == null) {
+            reader = Optional.ofNullable(providers.getMessageBodyReader(type, genericType, annotations, mediaType));
+            readers.put(key, reader);
+        }
+        return (MessageBodyReader<T>) reader.orElse(null);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> MessageBodyWriter<T> getMessageBodyWriter(Class<T> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        EntityKey key = new EntityKey(type, genericType, mediaType, annotations == null ? List.of() : Arrays.asList(annotations));
+        Optional<MessageBodyWriter<?>> writer = writers.get(key);
+        if (writer == null) {
+            writer = Optional.ofNullable(providers.getMessageBodyWriter(type, genericType, annotations, mediaType));
+            writers.put(key, writer);
+        }
+        return (MessageBodyWriter<T>) writer.orElse(null);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T extends Throwable> ExceptionMapper<T> getExceptionMapper(Class<T> type) {
+        Optional<ExceptionMapper<?>> mapper = mappers.get(type);
+        if (mapper == null) {
+            mapper = Optional.ofNullable(providers.getExceptionMapper(type));
+            mappers.put(type, mapper);
+        }
+        return (ExceptionMapper<T>) mapper.orElse(null);
+    }
+
+    @Override
+    public <T> ContextResolver<T> getContextResolver(Class<T> contextType, MediaType mediaType) {
+        return providers.getContextResolver(contextType, mediaType);
+    }
+
+    public void invalidateAll() {
+        writers.invalidateAll();
+        readers.invalidateAll();
+        mappers.invalidateAll();
+    }
+
+    public double hitRate() {
+        return writers.hitRate();
+    }
+
+    record EntityKey(Class<?> type, Type genericType, MediaType mediaType, List<Annotation> annotations) {
+    }
+}
+
+class BuiltinProviders implements Providers {
+    private static final JsonProvider json = new JsonProvider();
+
+    private final Providers providers;
+
+    public BuiltinProviders(Providers providers) {
+        this.providers = providers;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> MessageBodyReader<T> getMessageBodyReader(Class<T> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        MessageBodyReader<T> reader = providers.getMessageBodyReader(type, genericType, annotations, mediaType);
+        if (reader != null || !json.isReadable(type, genericType, annotations, mediaType)) return reader;
+        return (MessageBodyReader<T>) json;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> MessageBodyWriter<T> getMessageBodyWriter(Class<T> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        MessageBodyWriter<T> writer = providers.getMessageBodyWriter(type, genericType, annotations, mediaType);
+        if (writer != null || !json.isWriteable(type, genericType, annotations, mediaType)) return writer;
+        return (MessageBodyWriter<T>) json;
+    }
+
+    @Override
+    public <T extends Throwable> ExceptionMapper<T> getExceptionMapper(Class<T> type) {
+        return providers.getExceptionMapper(type);
+    }
+
+    @Override
+    public <T> ContextResolver<T> getContextResolver(Class<T> contextType, MediaType mediaType) {
+        return providers.getContextResolver(contextType, mediaType);
+    }
+}
@@ -0,0 +1,15 @@
+package cn.gavin.tdd.restful;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a GET resource method whose concurrent identical requests, those with the same path, query and negotiated
+ * media type, wait for the one already in flight and share its serialized response instead of invoking it again.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Coalesced {
+}
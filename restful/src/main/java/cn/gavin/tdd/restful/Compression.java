@@ -0,0 +1,186 @@
+package cn.gavin.tdd.restful;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+class Compression {
+    static final Set<String> defaultMediaTypes = Set.of("text/*", "application/json", "application/javascript", "application/xml",
+            "application/*+json", "application/*+xml", "image/svg+xml");
+    private static final int maximumPooled = 64;
+
+    private final int level;
+    private final int minimumLength;
+    private final Set<String> mediaTypes;
+    private final Deflaters gzip = new Deflaters(true);
+    private final Deflaters deflate = new Deflaters(false);
+
+    public Compression(int level, int minimumLength, Set<String> mediaTypes) {
+        if (level != Deflater.DEFAULT_COMPRESSION && (level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION))
+            throw new IllegalArgumentException("invalid compression level");
+        this.level = level;
+        this.minimumLength = minimumLength;
+        this.mediaTypes = Set.copyOf(mediaTypes);
+    }
+
+    int minimumLength() {
+        return minimumLength;
+    }
+
+    boolean isCompressible(String contentType) {
+        if (contentType == null) return false;
+        int parameters = contentType.indexOf(';');
+        String type = (parameters < 0 ? contentType : contentType.substring(0, parameters)).trim().toLowerCase(Locale.ROOT);
+        int slash = type.indexOf('/');
+        if (slash < 0) return false;
+        if (mediaTypes.contains(type) || mediaTypes.contains(type.substring(0, slash) + "/*")) return true;
+        int suffix = type.lastIndexOf('+');
+        return suffix > slash && mediaTypes.contains(type.substring(0, slash) + "/*" + type.substring(suffix));
+    }
+
+    String negotiate(String acceptEncoding) {
+        if (acceptEncoding == null) return null;
+        float gzip = -1, deflate = -1, any = -1;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            String name = parts[0].trim().toLowerCase(Locale.ROOT);
+            switch (name) {
+                case "gzip" -> gzip = quality(parts);
+                case "deflate" -> deflate = quality(parts);
+                case "*" -> any = quality(parts);
+                default -> {
+                }
+            }
+        }
+        if (gzip < 0) gzip = any;
+        if (deflate < 0) deflate = any;
+        if (gzip <= 0 && deflate <= 0) return null;
+        return gzip >= deflate ? "gzip" : "deflate";
+    }
+
+    static boolean accepts(String acceptEncoding, String encoding) {
+        if (acceptEncoding == null) return false;
+        float quality = -1, any = -1;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            String name = parts[0].trim().toLowerCase(Locale.ROOT);
+            if (name.equals(encoding)) quality = quality(parts);
+            else if (name.equals("*")) any = quality(parts);
+        }
+        return (quality < 0 ? any : quality) > 0;
+    }
+
+    private static float quality(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            String parameter = parts[i].trim();
+            if (!parameter.startsWith("q=")) continue;
+            try {
+                return Float.parseFloat(parameter.substring(2));
+            } catch (NumberFormatException e) {
+                return 0;
+            }
+        }
+        return 1;
+    }
+
+    OutputStream compress(OutputStream target, String encoding) throws IOException {
+        return "gzip".equals(encoding) ? new GzipStream(target, gzip) : new DeflateStream(target, deflate);
+    }
+
+    int pooled() {
+        return gzip.pooled.get() + deflate.pooled.get();
+    }
+
+    class Deflaters {
+        private final boolean nowrap;
+        private final Queue<Deflater> deflaters = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pooled = new AtomicInteger();
+
+        Deflaters(boolean nowrap) {
+            this.nowrap = nowrap;
+        }
+
+        Deflater acquire() {
+            Deflater deflater = deflaters.poll();
+            if (deflater == null) return new Deflater(level, nowrap);
+            pooled.decrementAndGet();
+            return deflater;
+        }
+
+        void release(Deflater deflater) {
+            deflater.reset();
+            if (pooled.incrementAndGet() > maximumPooled) {
+                pooled.decrementAndGet();
+                deflater.end();
+                return;
+            }
+            deflaters.offer(deflater);
+        }
+    }
+
+    static class DeflateStream extends DeflaterOutputStream {
+        private final Deflaters deflaters;
+        private boolean closed;
+
+        DeflateStream(OutputStream target, Deflaters deflaters) {
+            super(target, deflaters.acquire(), 8192);
+            this.deflaters = deflaters;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) return;
+            closed = true;
+            try {
+                finish();
+                out.flush();
+            } finally {
+                deflaters.release(def);
+            }
+        }
+
+        void abandon() {
+            if (closed) return;
+            closed = true;
+            deflaters.release(def);
+        }
+    }
+
+    static class GzipStream extends DeflateStream {
+        private static final byte[] header = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+        private final CRC32 crc = new CRC32();
+
+        GzipStream(OutputStream target, Deflaters deflaters) throws IOException {
+            super(target, deflaters);
+            try {
+                target.write(header);
+            } catch (IOException | RuntimeException e) {
+                abandon();
+                throw e;
+            }
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            super.write(bytes, offset, length);
+            crc.update(bytes, offset, length);
+        }
+
+        @Override
+        public void finish() throws IOException {
+            if (def.finished()) return;
+            super.finish();
+            long value = crc.getValue();
+            long length = def.getBytesRead();
+            out.write(new byte[]{(byte) value, (byte) (value >> 8), (byte) (value >> 16), (byte) (value >> 24),
+                    (byte) length, (byte) (length >> 8), (byte) (length >> 16), (byte) (length >> 24)});
+        }
+    }
+}
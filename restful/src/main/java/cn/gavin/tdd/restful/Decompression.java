@@ -0,0 +1,295 @@
+package cn.gavin.tdd.restful;
+
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Response;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+class Decompression {
+    private static final int maximumPooled = 64;
+
+    private final long maximumLength;
+    private final Inflaters gzip = new Inflaters(true);
+    private final Inflaters deflate = new Inflaters(false);
+
+    public Decompression(long maximumLength) {
+        if (maximumLength <= 0) throw new IllegalArgumentException("maximum length must be positive");
+        this.maximumLength = maximumLength;
+    }
+
+    HttpServletRequest decode(HttpServletRequest request) {
+        String encoding = request.getHeader(HttpHeaders.CONTENT_ENCODING);
+        if (encoding == null || encoding.isBlank() || encoding.trim().equalsIgnoreCase("identity")) return request;
+        return new DecodedRequest(request, encoding.trim().toLowerCase(Locale.ROOT));
+    }
+
+    InputStream decompress(InputStream compressed, String encoding) throws IOException {
+        return switch (encoding) {
+            case "gzip", "x-gzip" -> new InflatingStream(compressed, gzip, true, maximumLength);
+            case "deflate" -> new InflatingStream(compressed, deflate, false, maximumLength);
+            default -> throw new StacklessWebApplicationException(Response.Status.UNSUPPORTED_MEDIA_TYPE);
+        };
+    }
+
+    int pooled() {
+        return gzip.pooled.get() + deflate.pooled.get();
+    }
+
+    static class Inflaters {
+        private final boolean nowrap;
+        private final Queue<Inflater> inflaters = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pooled = new AtomicInteger();
+
+        Inflaters(boolean nowrap) {
+            this.nowrap = nowrap;
+        }
+
+        Inflater acquire() {
+            Inflater inflater = inflaters.poll();
+            if (inflater == null) return new Inflater(nowrap);
+            pooled.decrementAndGet();
+            return inflater;
+        }
+
+        void release(Inflater inflater) {
+            inflater.reset();
+            if (pooled.incrementAndGet() > maximumPooled) {
+                pooled.decrementAndGet();
+                inflater.end();
+                return;
+            }
+            inflaters.offer(inflater);
+        }
+    }
+
+    static class InflatingStream extends InputStream {
+        private final InputStream in;
+        private final Inflaters inflaters;
+        private final boolean gzip;
+        private final long maximumLength;
+        private final CRC32 crc = new CRC32();
+        private final byte[] buffer = new byte[8192];
+        private final byte[] single = new byte[1];
+        private Inflater inflater;
+        private boolean headerRead;
+        private boolean finished;
+        private int lastRead;
+        private long length;
+
+        InflatingStream(InputStream in, Inflaters inflaters, boolean gzip, long maximumLength) {
+            this.in = in;
+            this.inflaters = inflaters;
+            this.gzip = gzip;
+            this.maximumLength = maximumLength;
+            this.inflater = inflaters.acquire();
+        }
+
+        @Override
+        public int read() throws IOException {
+            return read(single, 0, 1) < 0 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int count) throws IOException {
+            if (finished) return -1;
+            if (inflater == null) throw new IOException("stream closed");
+            if (count == 0) return 0;
+            if (gzip && !headerRead) header();
+            try {
+                int inflated;
+                while ((inflated = inflater.inflate(bytes, offset, count)) == 0) {
+                    if (inflater.finished()) {
+                        finish();
+                        return -1;
+                    }
+                    if (inflater.needsDictionary()) throw new DataFormatException("dictionary required");
+                    lastRead = in.read(buffer);
+                    if (lastRead < 0) throw malformed();
+                    inflater.setInput(buffer, 0, lastRead);
+                }
+                length += inflated;
+                if (length > maximumLength) {
+                    close();
+                    throw new StacklessWebApplicationException(Response.Status.REQUEST_ENTITY_TOO_LARGE);
+                }
+                if (gzip) crc.update(bytes, offset, inflated);
+                return inflated;
+            } catch (DataFormatException e) {
+                close();
+                throw malformed();
+            }
+        }
+
+        private void header() throws IOException {
+            headerRead = true;
+            if (readByte() != 0x1f || readByte() != 0x8b || readByte() != 8) throw malformed();
+            int flags = readByte();
+            for (int i = 0; i < 6; i++) readByte();
+            if ((flags & 4) != 0) {
+                int extra = readByte() | readByte() << 8;
+                for (int i = 0; i < extra; i++) readByte();
+            }
+            if ((flags & 8) != 0) while (readByte() != 0) ;
+            if ((flags & 16) != 0) while (readByte() != 0) ;
+            if ((flags & 2) != 0) {
+                readByte();
+                readByte();
+            }
+        }
+
+        private void finish() throws IOException {
+            finished = true;
+            if (gzip) {
+                int remaining = inflater.getRemaining();
+                byte[] trailer = new byte[8];
+                int available = Math.min(remaining, 8);
+                System.arraycopy(buffer, lastRead - remaining, trailer, 0, available);
+                for (int i = available; i < 8; i++) trailer[i] = (byte) readByte();
+                long expected = (trailer[0] & 0xffL) | (trailer[1] & 0xffL) << 8 | (trailer[2] & 0xffL) << 16 | (trailer[3] & 0xffL) << 24;
+                long size = (trailer[4] & 0xffL) | (trailer[5] & 0xffL) << 8 | (trailer[6] & 0xffL) << 16 | (trailer[7] & 0xffL) << 24;
+                if (expected != crc.getValue() || size != (length & 0xffffffffL)) {
+                    close();
+                    throw malformed();
+                }
+            }
+            close();
+        }
+
+        private int readByte() throws IOException {
+            int value = in.read();
+            if (value < 0) throw malformed();
+            return value;
+        }
+
+        private static RuntimeException malformed() {
+            return new StacklessWebApplicationException(Response.Status.BAD_REQUEST);
+        }
+
+        @Override
+        public void close() {
+            if (inflater == null) return;
+            inflaters.release(inflater);
+            inflater = null;
+        }
+
+        boolean isFinished() {
+            return finished;
+        }
+    }
+
+    class DecodedRequest extends HttpServletRequestWrapper {
+        private final String encoding;
+        private DecodedInputStream stream;
+
+        DecodedRequest(HttpServletRequest request, String encoding) {
+            super(request);
+            this.encoding = encoding;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() throws IOException {
+            if (stream == null) stream = new DecodedInputStream((InflatingStream) decompress(super.getInputStream(), encoding));
+            return stream;
+        }
+
+        @Override
+        public BufferedReader getReader() throws IOException {
+            String charset = getCharacterEncoding();
+            return new BufferedReader(new InputStreamReader(getInputStream(), charset == null ? StandardCharsets.ISO_8859_1 : Charset.forName(charset)));
+        }
+
+        @Override
+        public String getHeader(String name) {
+            return isDecoded(name) ? null : super.getHeader(name);
+        }
+
+        @Override
+        public Enumeration<String> getHeaders(String name) {
+            return isDecoded(name) ? Collections.emptyEnumeration() : super.getHeaders(name);
+        }
+
+        @Override
+        public Enumeration<String> getHeaderNames() {
+            return Collections.enumeration(Collections.list(super.getHeaderNames()).stream().filter(name -> !isDecoded(name)).toList());
+        }
+
+        @Override
+        public int getIntHeader(String name) {
+            return isDecoded(name) ? -1 : super.getIntHeader(name);
+        }
+
+        @Override
+        public int getContentLength() {
+            return -1;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return -1;
+        }
+
+        void release() {
+            if (stream != null) stream.decoded.close();
+        }
+
+        private static boolean isDecoded(String name) {
+            return HttpHeaders.CONTENT_ENCODING.equalsIgnoreCase(name) || HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name);
+        }
+    }
+
+    static class DecodedInputStream extends ServletInputStream {
+        private final InflatingStream decoded;
+
+        DecodedInputStream(InflatingStream decoded) {
+            this.decoded = decoded;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return decoded.read();
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            return decoded.read(bytes, offset, length);
+        }
+
+        @Override
+        public boolean isFinished() {
+            return decoded.isFinished();
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setReadListener(ReadListener listener) {
+            throw new IllegalStateException("non-blocking read of an encoded request body is not supported");
+        }
+
+        @Override
+        public void close() throws IOException {
+            decoded.close();
+        }
+    }
+}
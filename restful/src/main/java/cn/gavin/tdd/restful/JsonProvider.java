@@ -0,0 +1,868 @@
+package cn.gavin.tdd.restful;
+
+import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.MultivaluedMap;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.ext.MessageBodyReader;
+import jakarta.ws.rs.ext.MessageBodyWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.RecordComponent;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.lang.reflect.WildcardType;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.DateTimeException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.BaseStream;
+
+import static java.util.Arrays.stream;
+
+@Produces({MediaType.APPLICATION_JSON, "application/*+json"})
+@Consumes({MediaType.APPLICATION_JSON, "application/*+json"})
+class JsonProvider implements MessageBodyWriter<Object>, MessageBodyReader<Object> {
+    private static final BufferPool buffers = new BufferPool(8192, 256);
+
+    static boolean isJson(MediaType mediaType) {
+        if (mediaType == null) return false;
+        String subtype = mediaType.getSubtype().toLowerCase(Locale.ROOT);
+        return subtype.equals("json") || subtype.endsWith("+json");
+    }
+
+    @Override
+    public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return isJson(mediaType);
+    }
+
+    @Override
+    public void writeTo(Object value, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType,
+                        MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream) throws IOException {
+        byte[] buffer = buffers.acquire();
+        try {
+            JsonOutput output = new JsonOutput(entityStream, buffer);
+            JsonWriters.write(value, output);
+            output.drain();
+        } finally {
+            buffers.release(buffer);
+        }
+    }
+
+    @Override
+    public boolean isReadable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return isJson(mediaType);
+    }
+
+    @Override
+    public Object readFrom(Class<Object> type, Type genericType, Annotation[] annotations, MediaType mediaType,
+                           MultivaluedMap<String, String> httpHeaders, InputStream entityStream) throws IOException {
+        String charset = mediaType == null ? null : mediaType.getParameters().get(MediaType.CHARSET_PARAMETER);
+        JsonInput input = new JsonInput(new InputStreamReader(entityStream, charset == null ? StandardCharsets.UTF_8 : Charset.forName(charset)));
+        Object value = JsonReaders.reader(genericType != null ? genericType : type).read(input);
+        input.end();
+        return value;
+    }
+}
+
+class JsonOutput {
+    private static final byte[] hex = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private static final int maximumDepth = 512;
+
+    private final OutputStream stream;
+    private final byte[] buffer;
+    private int position;
+    private int depth;
+
+    JsonOutput(OutputStream stream) {
+        this(stream, new byte[8192]);
+    }
+
+    JsonOutput(OutputStream stream, byte[] buffer) {
+        this.stream = stream;
+        this.buffer = buffer;
+    }
+
+    void open(char c) throws IOException {
+        if (++depth > maximumDepth) throw new IllegalStateException("JSON nesting exceeds " + maximumDepth + " levels");
+        raw(c);
+    }
+
+    void close(char c) throws IOException {
+        depth--;
+        raw(c);
+    }
+
+    void raw(char c) throws IOException {
+        if (position == buffer.length) drain();
+        buffer[position++] = (byte) c;
+    }
+
+    void raw(byte[] bytes) throws IOException {
+        if (bytes.length > buffer.length - position) drain();
+        if (bytes.length > buffer.length) {
+            stream.write(bytes);
+            return;
+        }
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+    }
+
+    void ascii(String value) throws IOException {
+        for (int i = 0; i < value.length(); i++) raw(value.charAt(i));
+    }
+
+    void number(long value) throws IOException {
+        if (value == Long.MIN_VALUE) {
+            ascii(Long.toString(value));
+            return;
+        }
+        if (buffer.length - position < 20) drain();
+        if (value < 0) {
+            buffer[position++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (long remaining = value / 10; remaining > 0; remaining /= 10) digits++;
+        for (int i = position + digits - 1; i >= position; i--, value /= 10) buffer[i] = (byte) ('0' + value % 10);
+        position += digits;
+    }
+
+    void string(CharSequence value) throws IOException {
+        raw('"');
+        for (int i = 0, length = value.length(); i < length; i++) {
+            if (buffer.length - position < 12) drain();
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                if (c < 0x20 || c == '"' || c == '\\') escape(c);
+                else buffer[position++] = (byte) c;
+            } else if (c < 0x800) {
+                buffer[position++] = (byte) (0xc0 | c >> 6);
+                buffer[position++] = (byte) (0x80 | c & 0x3f);
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int code = Character.toCodePoint(c, value.charAt(++i));
+                buffer[position++] = (byte) (0xf0 | code >> 18);
+                buffer[position++] = (byte) (0x80 | code >> 12 & 0x3f);
+                buffer[position++] = (byte) (0x80 | code >> 6 & 0x3f);
+                buffer[position++] = (byte) (0x80 | code & 0x3f);
+            } else if (Character.isSurrogate(c)) {
+                unicode(c);
+            } else {
+                buffer[position++] = (byte) (0xe0 | c >> 12);
+                buffer[position++] = (byte) (0x80 | c >> 6 & 0x3f);
+                buffer[position++] = (byte) (0x80 | c & 0x3f);
+            }
+        }
+        raw('"');
+    }
+
+    private void escape(char c) {
+        buffer[position++] = '\\';
+        switch (c) {
+            case '"', '\\' -> buffer[position++] = (byte) c;
+            case '\n' -> buffer[position++] = 'n';
+            case '\r' -> buffer[position++] = 'r';
+            case '\t' -> buffer[position++] = 't';
+            case '\b' -> buffer[position++] = 'b';
+            case '\f' -> buffer[position++] = 'f';
+            default -> {
+                position--;
+                unicode(c);
+            }
+        }
+    }
+
+    private void unicode(char c) {
+        buffer[position++] = '\\';
+        buffer[position++] = 'u';
+        buffer[position++] = hex[c >> 12 & 0xf];
+        buffer[position++] = hex[c >> 8 & 0xf];
+        buffer[position++] = hex[c >> 4 & 0xf];
+        buffer[position++] = hex[c & 0xf];
+    }
+
+    static byte[] name(String name) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            JsonOutput output = new JsonOutput(bytes);
+            output.string(name);
+            output.raw(':');
+            output.drain();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    void drain() throws IOException {
+        stream.write(buffer, 0, position);
+        position = 0;
+    }
+}
+
+class JsonWriters {
+    private static final MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+    private static final ClassValue<JsonWriter> writers = new ClassValue<>() {
+        @Override
+        protected JsonWriter computeValue(Class<?> type) {
+            return writer(type);
+        }
+    };
+
+    interface JsonWriter {
+        void write(Object value, JsonOutput output) throws IOException;
+    }
+
+    record Property(byte[] name, MethodHandle getter) {
+        Object get(Object target) {
+            try {
+                return (Object) getter.invokeExact(target);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    static void write(Object value, JsonOutput output) throws IOException {
+        if (value == null) output.ascii("null");
+        else writers.get(value.getClass()).write(value, output);
+    }
+
+    private static JsonWriter writer(Class<?> type) {
+        if (CharSequence.class.isAssignableFrom(type)) return (value, output) -> output.string((CharSequence) value);
+        if (type == Character.class) return (value, output) -> output.string(value.toString());
+        if (type == Boolean.class) return (value, output) -> output.ascii((Boolean) value ? "true" : "false");
+        if (type == Integer.class || type == Long.class || type == Short.class || type == Byte.class)
+            return (value, output) -> output.number(((Number) value).longValue());
+        if (type == Double.class || type == Float.class)
+            return (value, output) -> output.ascii(Double.isFinite(((Number) value).doubleValue()) ? value.toString() : "null");
+        if (Number.class.isAssignableFrom(type)) return (value, output) -> output.ascii(value.toString());
+        if (Enum.class.isAssignableFrom(type)) return (value, output) -> output.string(((Enum<?>) value).name());
+        if (type == Optional.class) return (value, output) -> write(((Optional<?>) value).orElse(null), output);
+        if (Path.class.isAssignableFrom(type)) return (value, output) -> output.string(value.toString());
+        if (Map.class.isAssignableFrom(type)) return JsonWriters::map;
+        if (Iterable.class.isAssignableFrom(type)) return (value, output) -> elements(((Iterable<?>) value).iterator(), output);
+        if (BaseStream.class.isAssignableFrom(type)) return (value, output) -> elements(((BaseStream<?, ?>) value).iterator(), output);
+        if (Iterator.class.isAssignableFrom(type)) return (value, output) -> elements((Iterator<?>) value, output);
+        if (type.isArray()) return JsonWriters::array;
+        if (type.isRecord()) return object(stream(type.getRecordComponents()).map(c -> property(c.getName(), c.getAccessor())).toList());
+        if (isPlatform(type)) return (value, output) -> output.string(value.toString());
+        return object(properties(type));
+    }
+
+    private static void map(Object value, JsonOutput output) throws IOException {
+        output.open('{');
+        boolean first = true;
+        for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+            if (!first) output.raw(',');
+            first = false;
+            output.string(String.valueOf(entry.getKey()));
+            output.raw(':');
+            write(entry.getValue(), output);
+        }
+        output.close('}');
+    }
+
+    private static void elements(Iterator<?> elements, JsonOutput output) throws IOException {
+        output.open('[');
+        for (boolean first = true; elements.hasNext(); first = false) {
+            if (!first) output.raw(',');
+            write(elements.next(), output);
+        }
+        output.close(']');
+    }
+
+    private static void array(Object value, JsonOutput output) throws IOException {
+        output.open('[');
+        for (int i = 0, length = Array.getLength(value); i < length; i++) {
+            if (i > 0) output.raw(',');
+            write(Array.get(value, i), output);
+        }
+        output.close(']');
+    }
+
+    private static JsonWriter object(List<Property> properties) {
+        Property[] fixed = properties.toArray(Property[]::new);
+        return (value, output) -> {
+            output.open('{');
+            for (int i = 0; i < fixed.length; i++) {
+                if (i > 0) output.raw(',');
+                output.raw(fixed[i].name());
+                write(fixed[i].get(value), output);
+            }
+            output.close('}');
+        };
+    }
+
+    private static List<Property> properties(Class<?> type) {
+        Map<String, Property> properties = new TreeMap<>();
+        for (Method method : type.getMethods()) {
+            if (Modifier.isStatic(method.getModifiers()) || method.getParameterCount() != 0 || method.getDeclaringClass() == Object.class) continue;
+            String name = JsonReaders.property(method.getName(), "get");
+            if (name == null && method.getReturnType() == boolean.class) name = JsonReaders.property(method.getName(), "is");
+            if (name != null && method.getReturnType() != void.class) properties.put(name, property(name, method));
+        }
+        for (Field field : type.getFields())
+            if (!Modifier.isStatic(field.getModifiers())) properties.putIfAbsent(field.getName(), property(field.getName(), field));
+        return List.copyOf(properties.values());
+    }
+
+    private static Property property(String name, Method accessor) {
+        try {
+            MethodHandle handle = ConverterHandles.lookup(accessor);
+            return new Property(JsonOutput.name(name), handle.asType(MethodType.methodType(Object.class, Object.class)));
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("property is not accessible: " + accessor, e);
+        }
+    }
+
+    private static Property property(String name, Field field) {
+        try {
+            return new Property(JsonOutput.name(name), lookup.unreflectGetter(field).asType(MethodType.methodType(Object.class, Object.class)));
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("property is not accessible: " + field, e);
+        }
+    }
+
+    static boolean isPlatform(Class<?> type) {
+        String name = type.getName();
+        return name.startsWith("java.") || name.startsWith("javax.") || name.startsWith("jakarta.");
+    }
+}
+
+class JsonInput {
+    private static final int maximumDepth = 512;
+
+    private final Reader reader;
+    private final char[] buffer = new char[8192];
+    private final StringBuilder text = new StringBuilder();
+    private int position;
+    private int limit;
+    private int depth;
+
+    JsonInput(Reader reader) {
+        this.reader = reader;
+    }
+
+    int peek() throws IOException {
+        while (true) {
+            if (position == limit && !fill()) return -1;
+            char c = buffer[position];
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t') return c;
+            position++;
+        }
+    }
+
+    private int next() throws IOException {
+        if (position == limit && !fill()) throw malformed();
+        return buffer[position++];
+    }
+
+    private boolean fill() throws IOException {
+        limit = reader.read(buffer);
+        position = 0;
+        if (limit > 0) return true;
+        limit = 0;
+        return false;
+    }
+
+    void expect(char c) throws IOException {
+        if (peek() != c) throw malformed();
+        position++;
+    }
+
+    boolean consume(char c) throws IOException {
+        if (peek() != c) return false;
+        position++;
+        return true;
+    }
+
+    boolean nextNull() throws IOException {
+        if (peek() != 'n') return false;
+        literal("null");
+        return true;
+    }
+
+    boolean bool() throws IOException {
+        if (peek() == 't') {
+            literal("true");
+            return true;
+        }
+        literal("false");
+        return false;
+    }
+
+    private void literal(String literal) throws IOException {
+        for (int i = 0; i < literal.length(); i++) if (next() != literal.charAt(i)) throw malformed();
+    }
+
+    void beginObject() throws IOException {
+        expect('{');
+        enter();
+    }
+
+    void beginArray() throws IOException {
+        expect('[');
+        enter();
+    }
+
+    private void enter() {
+        if (++depth > maximumDepth) throw malformed();
+    }
+
+    boolean hasNext(char close) throws IOException {
+        if (consume(close)) {
+            depth--;
+            return false;
+        }
+        return true;
+    }
+
+    void separator(char close) throws IOException {
+        if (peek() != close) expect(',');
+    }
+
+    String name() throws IOException {
+        String name = string();
+        expect(':');
+        return name;
+    }
+
+    String string() throws IOException {
+        expect('"');
+        text.setLength(0);
+        while (true) {
+            int start = position;
+            while (position < limit && buffer[position] != '"' && buffer[position] != '\\' && buffer[position] >= 0x20) position++;
+            text.append(buffer, start, position - start);
+            if (position == limit) {
+                if (!fill()) throw malformed();
+                continue;
+            }
+            char c = buffer[position++];
+            if (c == '"') return text.toString();
+            if (c < 0x20) throw malformed();
+            text.append(unescape());
+        }
+    }
+
+    private char unescape() throws IOException {
+        return switch (next()) {
+            case '"' -> '"';
+            case '\\' -> '\\';
+            case '/' -> '/';
+            case 'b' -> '\b';
+            case 'f' -> '\f';
+            case 'n' -> '\n';
+            case 'r' -> '\r';
+            case 't' -> '\t';
+            case 'u' -> {
+                int code = 0;
+                for (int i = 0; i < 4; i++) {
+                    int digit = Character.digit(next(), 16);
+                    if (digit < 0) throw malformed();
+                    code = code << 4 | digit;
+                }
+                yield (char) code;
+            }
+            default -> throw malformed();
+        };
+    }
+
+    String number() throws IOException {
+        peek();
+        text.setLength(0);
+        while (true) {
+            if (position == limit && !fill()) break;
+            char c = buffer[position];
+            if ((c < '0' || c > '9') && c != '-' && c != '+' && c != '.' && c != 'e' && c != 'E') break;
+            text.append(c);
+            position++;
+        }
+        if (text.isEmpty()) throw malformed();
+        return text.toString();
+    }
+
+    void skip() throws IOException {
+        switch (peek()) {
+            case '{' -> {
+                beginObject();
+                while (hasNext('}')) {
+                    name();
+                    skip();
+                    separator('}');
+                }
+            }
+            case '[' -> {
+                beginArray();
+                while (hasNext(']')) {
+                    skip();
+                    separator(']');
+                }
+            }
+            case '"' -> string();
+            case 't', 'f' -> bool();
+            case 'n' -> nextNull();
+            default -> number();
+        }
+    }
+
+    void end() throws IOException {
+        if (peek() != -1) throw malformed();
+    }
+
+    static RuntimeException malformed() {
+        return new StacklessWebApplicationException(Response.Status.BAD_REQUEST);
+    }
+}
+
+class JsonReaders {
+    private static final MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+    private static final ClassValue<JsonReader> readers = new ClassValue<>() {
+        @Override
+        protected JsonReader computeValue(Class<?> type) {
+            return reader(type);
+        }
+    };
+
+    private static final Map<Type, JsonReader> generics = new ConcurrentHashMap<>();
+
+    private static final Map<Class<?>, Supplier<Collection<Object>>> collections = Map.of(
+            Iterable.class, ArrayList::new,
+            Collection.class, ArrayList::new,
+            List.class, ArrayList::new,
+            ArrayList.class, ArrayList::new,
+            Set.class, LinkedHashSet::new,
+            LinkedHashSet.class, LinkedHashSet::new,
+            SortedSet.class, TreeSet::new,
+            TreeSet.class, TreeSet::new
+    );
+
+    private static final Map<Class<?>, Supplier<Map<Object, Object>>> maps = Map.of(
+            Map.class, LinkedHashMap::new,
+            LinkedHashMap.class, LinkedHashMap::new,
+            HashMap.class, HashMap::new,
+            SortedMap.class, TreeMap::new,
+            TreeMap.class, TreeMap::new
+    );
+
+    interface JsonReader {
+        Object read(JsonInput input) throws IOException;
+    }
+
+    static JsonReader reader(Type type) {
+        if (type instanceof Class<?> raw) return readers.get(raw);
+        if (type instanceof WildcardType wildcard) return reader(wildcard.getUpperBounds()[0]);
+        if (type instanceof TypeVariable<?> variable) return reader(variable.getBounds()[0]);
+        JsonReader reader = generics.get(type);
+        if (reader == null) {
+            reader = generic(type);
+            generics.putIfAbsent(type, reader);
+        }
+        return reader;
+    }
+
+    private static JsonReader lazy(Type type) {
+        return new JsonReader() {
+            private JsonReader reader;
+
+            @Override
+            public Object read(JsonInput input) throws IOException {
+                if (reader == null) reader = JsonReaders.reader(type);
+                return reader.read(input);
+            }
+        };
+    }
+
+    private static JsonReader generic(Type type) {
+        if (type instanceof GenericArrayType array) return array(rawType(array.getGenericComponentType()), lazy(array.getGenericComponentType()));
+        ParameterizedType parameterized = (ParameterizedType) type;
+        Class<?> raw = (Class<?>) parameterized.getRawType();
+        Type[] arguments = parameterized.getActualTypeArguments();
+        if (collections.containsKey(raw)) return collection(collections.get(raw), lazy(arguments[0]));
+        if (maps.containsKey(raw)) return map(maps.get(raw), key(arguments[0]), lazy(arguments[1]));
+        if (raw == Optional.class) {
+            JsonReader element = lazy(arguments[0]);
+            return input -> input.nextNull() ? Optional.empty() : Optional.ofNullable(element.read(input));
+        }
+        return reader(raw);
+    }
+
+    private static JsonReader reader(Class<?> type) {
+        if (type == Object.class) return JsonReaders::any;
+        if (type == String.class || type == CharSequence.class) return nullable(JsonInput::string);
+        if (type == boolean.class) return JsonInput::bool;
+        if (type == Boolean.class) return nullable(JsonInput::bool);
+        if (type == char.class || type == Character.class) return nullable(string(JsonReaders::character));
+        if (type.isPrimitive()) return number(PrimitiveConverter.converter(type).get());
+        if (type == BigDecimal.class) return nullable(number(BigDecimal::new));
+        if (type == BigInteger.class) return nullable(number(BigInteger::new));
+        if (Number.class.isAssignableFrom(type) && PrimitiveConverter.converter(type).isPresent())
+            return nullable(number(PrimitiveConverter.converter(type).get()));
+        if (type.isEnum()) return nullable(string(EnumConverter.converter(type).get()));
+        if (type.isArray()) return array(type.getComponentType(), lazy(type.getComponentType()));
+        if (collections.containsKey(type)) return collection(collections.get(type), JsonReaders::any);
+        if (maps.containsKey(type)) return map(maps.get(type), key(String.class), JsonReaders::any);
+        if (type == Optional.class) return input -> input.nextNull() ? Optional.empty() : Optional.ofNullable(any(input));
+        if (type.isRecord()) return record(type);
+        Optional<Function<String, Object>> converter = ConverterConstructor.converter(type).or(() -> ConverterFactory.converter(type)).or(() -> parse(type));
+        if (JsonWriters.isPlatform(type) || type.isInterface()) {
+            if (converter.isEmpty()) throw new IllegalArgumentException("unsupported json type: " + type);
+            return nullable(string(converter.get()));
+        }
+        return bean(type);
+    }
+
+    private static JsonReader nullable(JsonReader reader) {
+        return input -> input.nextNull() ? null : reader.read(input);
+    }
+
+    private static JsonReader number(Function<String, Object> converter) {
+        return input -> convert(converter, input.number());
+    }
+
+    private static JsonReader string(Function<String, Object> converter) {
+        return input -> convert(converter, input.string());
+    }
+
+    private static Object convert(Function<String, Object> converter, String value) {
+        try {
+            return converter.apply(value);
+        } catch (IllegalArgumentException | ArithmeticException | DateTimeException e) {
+            throw JsonInput.malformed();
+        }
+    }
+
+    private static Character character(String value) {
+        if (value.length() != 1) throw new IllegalArgumentException("not a single character: " + value);
+        return value.charAt(0);
+    }
+
+    private static Optional<Function<String, Object>> parse(Class<?> type) {
+        return stream(type.getMethods()).filter(m -> m.getName().equals("parse") && Modifier.isStatic(m.getModifiers()) && m.getReturnType() == type
+                        && m.getParameterCount() == 1 && m.getParameterTypes()[0].isAssignableFrom(String.class))
+                .findFirst().flatMap(ConverterHandles::unreflect).map(ConverterHandles::converter);
+    }
+
+    private static Function<String, Object> key(Type type) {
+        if (type == String.class || type == Object.class || !(type instanceof Class<?>)) return key -> key;
+        return Converters.converter(type).<Function<String, Object>>map(converter -> key -> converter.fromString(List.of(key)))
+                .orElseThrow(() -> new IllegalArgumentException("unsupported json key type: " + type));
+    }
+
+    private static Object any(JsonInput input) throws IOException {
+        return switch (input.peek()) {
+            case '{' -> map(LinkedHashMap::new, key -> key, JsonReaders::any).read(input);
+            case '[' -> collection(ArrayList::new, JsonReaders::any).read(input);
+            case '"' -> input.string();
+            case 't', 'f' -> input.bool();
+            case 'n' -> {
+                input.nextNull();
+                yield null;
+            }
+            default -> {
+                String number = input.number();
+                if (number.indexOf('.') >= 0 || number.indexOf('e') >= 0 || number.indexOf('E') >= 0) yield convert(Double::valueOf, number);
+                BigInteger integer = (BigInteger) convert(BigInteger::new, number);
+                yield integer.bitLength() < 64 ? (Object) integer.longValue() : integer;
+            }
+        };
+    }
+
+    private static JsonReader collection(Supplier<Collection<Object>> factory, JsonReader element) {
+        return nullable(input -> {
+            Collection<Object> collection = factory.get();
+            input.beginArray();
+            while (input.hasNext(']')) {
+                collection.add(element.read(input));
+                input.separator(']');
+            }
+            return collection;
+        });
+    }
+
+    private static JsonReader array(Class<?> component, JsonReader element) {
+        JsonReader elements = collection(ArrayList::new, element);
+        return input -> {
+            Collection<?> values = (Collection<?>) elements.read(input);
+            if (values == null) return null;
+            Object array = Array.newInstance(component, values.size());
+            int i = 0;
+            for (Object value : values) Array.set(array, i++, value);
+            return array;
+        };
+    }
+
+    private static JsonReader map(Supplier<Map<Object, Object>> factory, Function<String, Object> key, JsonReader value) {
+        return nullable(input -> {
+            Map<Object, Object> map = factory.get();
+            input.beginObject();
+            while (input.hasNext('}')) {
+                map.put(key.apply(input.name()), value.read(input));
+                input.separator('}');
+            }
+            return map;
+        });
+    }
+
+    private static JsonReader record(Class<?> type) {
+        RecordComponent[] components = type.getRecordComponents();
+        Map<String, Integer> indexes = new HashMap<>();
+        JsonReader[] readers = new JsonReader[components.length];
+        Object[] absent = new Object[components.length];
+        for (int i = 0; i < components.length; i++) {
+            indexes.put(components[i].getName(), i);
+            readers[i] = lazy(components[i].getGenericType());
+            absent[i] = Converters.absent(components[i].getGenericType());
+        }
+        MethodHandle constructor;
+        try {
+            Constructor<?> canonical = type.getDeclaredConstructor(stream(components).map(RecordComponent::getType).toArray(Class[]::new));
+            canonical.trySetAccessible();
+            constructor = lookup.unreflectConstructor(canonical).asType(MethodType.methodType(Object.class, canonical.getParameterTypes()))
+                    .asSpreader(Object[].class, components.length);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException("record is not accessible: " + type, e);
+        }
+        return nullable(input -> {
+            Object[] arguments = absent.clone();
+            input.beginObject();
+            while (input.hasNext('}')) {
+                Integer index = indexes.get(input.name());
+                if (index == null) input.skip();
+                else arguments[index] = readers[index].read(input);
+                input.separator('}');
+            }
+            try {
+                return (Object) constructor.invokeExact(arguments);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new RuntimeException(e);
+            }
+        });
+    }
+
+    private static JsonReader bean(Class<?> type) {
+        MethodHandle constructor;
+        try {
+            Constructor<?> noArguments = type.getDeclaredConstructor();
+            noArguments.trySetAccessible();
+            constructor = lookup.unreflectConstructor(noArguments).asType(MethodType.methodType(Object.class));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException("json type has no accessible default constructor: " + type, e);
+        }
+        Map<String, Setter> setters = new HashMap<>();
+        for (Field field : type.getFields())
+            if (!Modifier.isStatic(field.getModifiers()) && !Modifier.isFinal(field.getModifiers()))
+                setters.put(field.getName(), setter(field));
+        stream(type.getMethods()).filter(m -> !Modifier.isStatic(m.getModifiers()) && m.getParameterCount() == 1)
+                .sorted(Comparator.comparing(Method::getName))
+                .forEach(method -> {
+                    String name = property(method.getName(), "set");
+                    if (name != null) setters.put(name, setter(method));
+                });
+        return nullable(input -> {
+            Object bean;
+            try {
+                bean = (Object) constructor.invokeExact();
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new RuntimeException(e);
+            }
+            input.beginObject();
+            while (input.hasNext('}')) {
+                Setter setter = setters.get(input.name());
+                if (setter == null) input.skip();
+                else setter.set(bean, setter.reader().read(input));
+                input.separator('}');
+            }
+            return bean;
+        });
+    }
+
+    record Setter(MethodHandle handle, JsonReader reader) {
+        void set(Object target, Object value) {
+            try {
+                handle.invokeExact(target, value);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    private static Setter setter(Method method) {
+        try {
+            MethodHandle handle = ConverterHandles.lookup(method);
+            return new Setter(handle.asType(MethodType.methodType(void.class, Object.class, Object.class)), lazy(method.getGenericParameterTypes()[0]));
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("property is not accessible: " + method, e);
+        }
+    }
+
+    private static Setter setter(Field field) {
+        try {
+            return new Setter(lookup.unreflectSetter(field).asType(MethodType.methodType(void.class, Object.class, Object.class)), lazy(field.getGenericType()));
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("property is not accessible: " + field, e);
+        }
+    }
+
+    private static Class<?> rawType(Type type) {
+        if (type instanceof Class<?> raw) return raw;
+        if (type instanceof ParameterizedType parameterized) return (Class<?>) parameterized.getRawType();
+        if (type instanceof GenericArrayType array) return Array.newInstance(rawType(array.getGenericComponentType()), 0).getClass();
+        return Object.class;
+    }
+
+    static String property(String method, String prefix) {
+        if (!method.startsWith(prefix) || method.length() == prefix.length() || !Character.isUpperCase(method.charAt(prefix.length()))) return null;
+        String name = method.substring(prefix.length());
+        return name.length() > 1 && Character.isUpperCase(name.charAt(1)) ? name : Character.toLowerCase(name.charAt(0)) + name.substring(1);
+    }
+}
@@ -0,0 +1,176 @@
+package cn.gavin.tdd.restful;
+
+import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+import static java.util.Arrays.stream;
+
+record MediaRange(String type, String subtype, double quality) {
+    private static final String WILDCARD = "*";
+    static final List<MediaRange> wildcard = List.of(new MediaRange(WILDCARD, WILDCARD, 1));
+
+    private static final BoundedCache<String, List<MediaRange>> parsed = new BoundedCache<>(256);
+    private static final BoundedCache<String, MediaType> mediaTypes = new BoundedCache<>(256);
+
+    static List<MediaRange> accept(String[] headers) {
+        if (headers == null || headers.length == 0) return wildcard;
+        return parse(headers.length == 1 ? headers[0] : String.join(",", headers));
+    }
+
+    static Optional<MediaRange> contentType(String header) {
+        if (header == null) return Optional.empty();
+        return parse(header).stream().findFirst();
+    }
+
+    static MediaType mediaType(String contentType) {
+        if (contentType == null) return MediaType.APPLICATION_OCTET_STREAM_TYPE;
+        MediaType mediaType = mediaTypes.get(contentType);
+        if (mediaType == null) {
+            mediaType = parseMediaType(contentType);
+            mediaTypes.put(contentType, mediaType);
+        }
+        return mediaType;
+    }
+
+    static List<MediaRange> produces(Method method) {
+        return declared(Optional.ofNullable(method.getAnnotation(Produces.class)).map(Produces::value)
+                .or(() -> Optional.ofNullable(method.getDeclaringClass().getAnnotation(Produces.class)).map(Produces::value)));
+    }
+
+    static List<MediaRange> consumes(Method method) {
+        return declared(Optional.ofNullable(method.getAnnotation(Consumes.class)).map(Consumes::value)
+                .or(() -> Optional.ofNullable(method.getDeclaringClass().getAnnotation(Consumes.class)).map(Consumes::value)));
+    }
+
+    static boolean isConsumable(List<MediaRange> consumes, Optional<MediaRange> contentType) {
+        return contentType.map(type -> consumes.stream().anyMatch(type::isCompatible)).orElse(true);
+    }
+
+    static long score(List<MediaRange> produces, List<MediaRange> accept) {
+        long score = -1;
+        for (MediaRange produce : produces)
+            for (MediaRange accepted : accept)
+                score = Math.max(score, score(produce, accepted, accept));
+        return score;
+    }
+
+    static Optional<String> negotiate(List<MediaRange> produces, List<MediaRange> accept) {
+        MediaRange selected = null;
+        long best = -1;
+        for (MediaRange produce : produces)
+            for (MediaRange accepted : accept) {
+                long score = score(produce, accepted, accept);
+                if (score > best) {
+                    best = score;
+                    selected = candidate(produce, accepted);
+                }
+            }
+        return Optional.ofNullable(selected).filter(MediaRange::isConcrete).map(MediaRange::toString);
+    }
+
+    private static long score(MediaRange produce, MediaRange accepted, List<MediaRange> accept) {
+        if (!accepted.isCompatible(produce)) return -1;
+        MediaRange precedent = precedent(candidate(produce, accepted), accept);
+        if (precedent == null || precedent.quality <= 0) return -1;
+        return Math.round(precedent.quality * 1000) * 100 + precedent.specificity() * 10L + produce.specificity();
+    }
+
+    private static MediaRange candidate(MediaRange produce, MediaRange accepted) {
+        return produce.specificity() >= accepted.specificity() ? produce : accepted;
+    }
+
+    private static MediaRange precedent(MediaRange type, List<MediaRange> accept) {
+        MediaRange precedent = null;
+        for (MediaRange accepted : accept)
+            if (accepted.includes(type) && (precedent == null || accepted.specificity() > precedent.specificity())) precedent = accepted;
+        return precedent;
+    }
+
+    boolean isCompatible(MediaRange other) {
+        return (type.equals(WILDCARD) || other.type.equals(WILDCARD) || type.equals(other.type))
+                && (subtype.equals(WILDCARD) || other.subtype.equals(WILDCARD) || subtype.equals(other.subtype));
+    }
+
+    boolean includes(MediaRange other) {
+        return (type.equals(WILDCARD) || type.equals(other.type)) && (subtype.equals(WILDCARD) || subtype.equals(other.subtype));
+    }
+
+    boolean isConcrete() {
+        return specificity() == 2;
+    }
+
+    int specificity() {
+        if (type.equals(WILDCARD)) return 0;
+        return subtype.equals(WILDCARD) ? 1 : 2;
+    }
+
+    @Override
+    public String toString() {
+        return type + "/" + subtype;
+    }
+
+    private static List<MediaRange> declared(Optional<String[]> values) {
+        return values.map(v -> stream(v).flatMap(value -> parse(value).stream()).toList()).filter(v -> !v.isEmpty()).orElse(wildcard);
+    }
+
+    private static List<MediaRange> parse(String header) {
+        List<MediaRange> ranges = parsed.get(header);
+        if (ranges == null) {
+            ranges = parseRanges(header);
+            parsed.put(header, ranges);
+        }
+        return ranges;
+    }
+
+    private static List<MediaRange> parseRanges(String header) {
+        List<MediaRange> ranges = new ArrayList<>();
+        for (String range : header.split(",")) {
+            String[] parts = range.split(";");
+            String name = parts[0].trim().toLowerCase(Locale.ROOT);
+            if (name.isEmpty()) continue;
+            if (name.equals(WILDCARD)) name = WILDCARD + "/" + WILDCARD;
+            int slash = name.indexOf('/');
+            if (slash <= 0 || slash == name.length() - 1) continue;
+            ranges.add(new MediaRange(name.substring(0, slash), name.substring(slash + 1), quality(parts)));
+        }
+        return List.copyOf(ranges);
+    }
+
+    private static MediaType parseMediaType(String contentType) {
+        String[] parts = contentType.split(";");
+        MediaRange range = contentType(parts[0]).orElse(null);
+        if (range == null) return MediaType.APPLICATION_OCTET_STREAM_TYPE;
+        Map<String, String> parameters = new HashMap<>();
+        for (int i = 1; i < parts.length; i++) {
+            int equals = parts[i].indexOf('=');
+            if (equals <= 0) continue;
+            String value = parts[i].substring(equals + 1).trim();
+            if (value.length() > 1 && value.startsWith("\"") && value.endsWith("\"")) value = value.substring(1, value.length() - 1);
+            parameters.put(parts[i].substring(0, equals).trim().toLowerCase(Locale.ROOT), value);
+        }
+        return new MediaType(range.type(), range.subtype(), parameters);
+    }
+
+    private static double quality(String[] parameters) {
+        for (int i = 1; i < parameters.length; i++) {
+            int equals = parameters[i].indexOf('=');
+            if (equals > 0 && parameters[i].substring(0, equals).trim().equalsIgnoreCase("q")) {
+                try {
+                    return Math.max(0, Math.min(1, Double.parseDouble(parameters[i].substring(equals + 1).trim())));
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+}
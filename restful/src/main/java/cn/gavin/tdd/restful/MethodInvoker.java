@@ -1,66 +1,127 @@
 package cn.gavin.tdd.restful;
 
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.ws.rs.PathParam;
 import jakarta.ws.rs.QueryParam;
-import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.container.AsyncResponse;
 import jakarta.ws.rs.container.ResourceContext;
+import jakarta.ws.rs.container.Suspended;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.MultivaluedHashMap;
+import jakarta.ws.rs.core.MultivaluedMap;
+import jakarta.ws.rs.core.Response;
 import jakarta.ws.rs.core.UriInfo;
+import jakarta.ws.rs.ext.MessageBodyReader;
+import jakarta.ws.rs.ext.Providers;
 
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.lang.reflect.Parameter;
-import java.lang.reflect.Type;
-import java.util.List;
-import java.util.Map;
-import java.util.Optional;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.lang.annotation.Annotation;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.*;
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
-import static cn.gavin.tdd.restful.MethodInvoker.ValueConverter.singeValued;
+import static java.lang.invoke.MethodType.methodType;
 import static java.util.Arrays.stream;
 
 class MethodInvoker {
-    private static ValueProvider pathParam = (parameter, uriInfo) -> Optional.ofNullable(parameter.getAnnotation(PathParam.class)).map(annotation -> uriInfo.getPathParameters().get(annotation.value()));
-    private static ValueProvider queryParam = (parameter, uriInfo) -> Optional.ofNullable(parameter.getAnnotation(QueryParam.class)).map(annotation -> uriInfo.getQueryParameters().get(annotation.value()));
-    private static List<ValueProvider> providers = List.of(pathParam, queryParam);
+    private static final Map<Method, MethodInvoker> invokers = new ConcurrentHashMap<>();
 
-    static Object invoke(Method method, ResourceContext resourceContext, UriInfoBuilder builder) {
-        try {
-            UriInfo uriInfo = builder.createUriInfo();
+    private final MethodHandle handle;
+    private final ParameterBinding[] bindings;
+    private final int suspended;
+
+    private MethodInvoker(Method method) {
+        this.handle = handle(method);
+        this.bindings = stream(method.getParameters()).map(MethodInvoker::bind).toArray(ParameterBinding[]::new);
+        this.suspended = suspended(method.getParameters());
+    }
+
+    static MethodInvoker of(Method method) {
+        return invokers.computeIfAbsent(method, MethodInvoker::new);
+    }
+
+    boolean isSuspended() {
+        return suspended >= 0;
+    }
 
-            return method.invoke(builder.getLastMatchedResource(),
-                    stream(method.getParameters()).map(parameter ->
-                            injectParameters(parameter, uriInfo)
-                                    .or(() -> injectContext(parameter, resourceContext, uriInfo))
-                                    .orElse(null)).toArray(Object[]::new));
+    Object invoke(ResourceContext resourceContext, UriInfoBuilder builder) {
+        UriInfo uriInfo = builder.createUriInfo();
+        SuspendedResponse response = isSuspended() ? new SuspendedResponse() : null;
 
-        } catch (InvocationTargetException e) {
-            if (e.getCause() instanceof WebApplicationException) throw (WebApplicationException) e.getCause();
+        Object[] arguments = new Object[bindings.length];
+        for (int i = 0; i < bindings.length; i++)
+            arguments[i] = i == suspended ? response : bindings[i].bind(resourceContext, uriInfo);
+
+        try {
+            Object result = (Object) handle.invokeExact(builder.getLastMatchedResource(), arguments);
+            return response == null ? result : response.stage();
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
             throw new RuntimeException(e);
+        }
+    }
+
+    private static MethodHandle handle(Method method) {
+        try {
+            MethodHandle handle = ConverterHandles.lookup(method);
+            return handle.asType(handle.type().generic()).asSpreader(Object[].class, method.getParameterCount());
         } catch (IllegalAccessException e) {
-            throw new RuntimeException(e);
+            throw new IllegalArgumentException("resource method is not accessible: " + method, e);
         }
     }
 
-    private static Optional<Object> injectContext(Parameter parameter, ResourceContext resourceContext, UriInfo uriInfo) {
-        if (parameter.getType().equals(ResourceContext.class)) return Optional.of(resourceContext);
-        if (parameter.getType().equals(UriInfo.class)) return Optional.of(uriInfo);
-        return Optional.of(resourceContext.getResource(parameter.getType()));
+    private static int suspended(Parameter[] parameters) {
+        for (int i = 0; i < parameters.length; i++)
+            if (parameters[i].isAnnotationPresent(Suspended.class) && parameters[i].getType().equals(AsyncResponse.class)) return i;
+        return -1;
+    }
+
+    private static ParameterBinding bind(Parameter parameter) {
+        return valueSource(parameter).<ParameterBinding>map(source -> convertValue(parameter, source))
+                .orElseGet(() -> RequestEntity.isEntity(parameter) ? RequestEntity.binding(parameter) : injectContext(parameter));
+    }
+
+    private static Optional<ValueSource> valueSource(Parameter parameter) {
+        PathParam path = parameter.getAnnotation(PathParam.class);
+        if (path != null) return Optional.of(uriInfo -> uriInfo.getPathParameters().get(path.value()));
+        QueryParam query = parameter.getAnnotation(QueryParam.class);
+        if (query != null) return Optional.of(uriInfo -> uriInfo.getQueryParameters().get(query.value()));
+        return Optional.empty();
     }
 
-    private static Optional<Object> injectParameters(Parameter parameter, UriInfo uriInfo) {
-        return providers.stream().map(provider -> provider.provide(parameter, uriInfo)).filter(Optional::isPresent)
-                .findFirst()
-                .flatMap(values -> values.flatMap(v -> convert(parameter, v)));
+    private static ParameterBinding convertValue(Parameter parameter, ValueSource source) {
+        ValueConverter<Object> converter = Converters.converter(parameter.getParameterizedType()).orElse(values -> null);
+        Object absent = Converters.absent(parameter.getParameterizedType());
+        return (resourceContext, uriInfo) -> {
+            List<String> values = source.values(uriInfo);
+            return values == null || values.isEmpty() ? absent : converter.fromString(values);
+        };
     }
 
-    private static Optional<Object> convert(Parameter parameter, List<String> values) {
-        return PrimitiveConverter.convert(parameter, values)
-                .or(() -> ConverterConstructor.convert(parameter.getType(), values.get(0)))
-                .or(() -> ConverterFactory.convert(parameter.getType(), values.get(0)));
+    private static ParameterBinding injectContext(Parameter parameter) {
+        Class<?> type = parameter.getType();
+        if (type.equals(ResourceContext.class)) return (resourceContext, uriInfo) -> resourceContext;
+        if (type.equals(UriInfo.class)) return (resourceContext, uriInfo) -> uriInfo;
+        return (resourceContext, uriInfo) -> resourceContext.getResource(type);
     }
 
-    interface ValueProvider {
-        Optional<List<String>> provide(Parameter parameter, UriInfo uriInfo);
+    interface ParameterBinding {
+        Object bind(ResourceContext resourceContext, UriInfo uriInfo);
+    }
+
+    interface ValueSource {
+        List<String> values(UriInfo uriInfo);
     }
 
     interface ValueConverter<T> {
@@ -72,40 +133,201 @@ class MethodInvoker {
     }
 }
 
+class RequestEntity {
+    static final String providersAttribute = Providers.class.getName();
+    static final String limitAttribute = RequestEntity.class.getName() + ".limit";
+    private static final long defaultLimit = 16 * 1024 * 1024;
+
+    static boolean isEntity(Parameter parameter) {
+        return stream(parameter.getAnnotations()).noneMatch(a -> a.annotationType().getPackageName().startsWith("jakarta.ws.rs"));
+    }
+
+    static MethodInvoker.ParameterBinding binding(Parameter parameter) {
+        Class<?> type = parameter.getType();
+        if (type == InputStream.class) return (resourceContext, uriInfo) -> read(resourceContext, HttpServletRequest::getInputStream);
+        if (type == Reader.class) return (resourceContext, uriInfo) -> read(resourceContext, HttpServletRequest::getReader);
+        if (type == byte[].class) return (resourceContext, uriInfo) -> read(resourceContext, RequestEntity::bytes);
+        if (type == ByteBuffer.class) return (resourceContext, uriInfo) -> read(resourceContext, request -> ByteBuffer.wrap(bytes(request)));
+        if (type == Multipart.class) return (resourceContext, uriInfo) -> read(resourceContext, Multipart::of);
+        Type genericType = parameter.getParameterizedType();
+        Annotation[] annotations = parameter.getAnnotations();
+        return (resourceContext, uriInfo) -> read(resourceContext, request -> entity(request, providers(request, resourceContext), type, genericType, annotations));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object entity(HttpServletRequest request, Providers providers, Class<?> type, Type genericType, Annotation[] annotations) throws IOException {
+        MediaType mediaType = MediaRange.mediaType(request.getContentType());
+        MessageBodyReader<Object> reader = providers == null ? null : (MessageBodyReader<Object>) providers.getMessageBodyReader(type, genericType, annotations, mediaType);
+        if (reader == null) throw new StacklessWebApplicationException(Response.Status.UNSUPPORTED_MEDIA_TYPE);
+        return reader.readFrom((Class<Object>) type, genericType, annotations, mediaType, headers(request), request.getInputStream());
+    }
+
+    private static byte[] bytes(HttpServletRequest request) throws IOException {
+        long limit = Math.min(request.getAttribute(limitAttribute) instanceof Long l ? l : defaultLimit, Integer.MAX_VALUE - 8);
+        long length = request.getContentLengthLong();
+        if (length > limit) throw new StacklessWebApplicationException(Response.Status.REQUEST_ENTITY_TOO_LARGE);
+        InputStream stream = request.getInputStream();
+        byte[] bytes = stream.readNBytes((int) (length >= 0 ? length : limit));
+        if (length < 0 && bytes.length == limit && stream.read() >= 0)
+            throw new StacklessWebApplicationException(Response.Status.REQUEST_ENTITY_TOO_LARGE);
+        if (bytes.length < length) throw new StacklessWebApplicationException(Response.Status.BAD_REQUEST);
+        return bytes;
+    }
+
+    private static MultivaluedMap<String, String> headers(HttpServletRequest request) {
+        MultivaluedMap<String, String> headers = new MultivaluedHashMap<>();
+        for (String name : Collections.list(request.getHeaderNames())) headers.put(name, Collections.list(request.getHeaders(name)));
+        return headers;
+    }
+
+    private static Providers providers(HttpServletRequest request, ResourceContext resourceContext) {
+        return request.getAttribute(providersAttribute) instanceof Providers providers ? providers : resourceContext.getResource(Providers.class);
+    }
+
+    private static Object read(ResourceContext resourceContext, EntitySource source) {
+        HttpServletRequest request = resourceContext.getResource(HttpServletRequest.class);
+        if (request == null) throw new IllegalStateException("request entity is not available");
+        try {
+            return source.read(request);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    interface EntitySource {
+        Object read(HttpServletRequest request) throws IOException;
+    }
+}
+
+class Converters {
+    private static final Function<String, Object> absent = value -> null;
+
+    private static final ClassValue<Function<String, Object>> converters = new ClassValue<>() {
+        @Override
+        protected Function<String, Object> computeValue(Class<?> type) {
+            return PrimitiveConverter.converter(type)
+                    .or(() -> EnumConverter.converter(type))
+                    .or(() -> ConverterConstructor.converter(type))
+                    .or(() -> ConverterFactory.converter(type))
+                    .orElse(absent);
+        }
+    };
+
+    private static final Map<Type, Supplier<Collection<Object>>> collections = Map.of(
+            List.class, ArrayList::new,
+            Set.class, LinkedHashSet::new,
+            SortedSet.class, TreeSet::new
+    );
+
+    public static Optional<MethodInvoker.ValueConverter<Object>> converter(Type type) {
+        if (type instanceof ParameterizedType parameterized && collections.containsKey(parameterized.getRawType()))
+            return element(parameterized.getActualTypeArguments()[0]).map(converter -> collection(converter, collections.get(parameterized.getRawType())));
+        return element(type).map(MethodInvoker.ValueConverter::singeValued);
+    }
+
+    public static Object absent(Type type) {
+        if (type instanceof ParameterizedType parameterized && collections.containsKey(parameterized.getRawType()))
+            return collections.get(parameterized.getRawType()).get();
+        if (type instanceof Class<?> primitive && primitive.isPrimitive() && primitive != void.class)
+            return Array.get(Array.newInstance(primitive, 1), 0);
+        return null;
+    }
+
+    private static Optional<Function<String, Object>> element(Type type) {
+        if (!(type instanceof Class<?> element)) return Optional.empty();
+        Function<String, Object> converter = converters.get(element);
+        return converter == absent ? Optional.empty() : Optional.of(converter);
+    }
+
+    private static MethodInvoker.ValueConverter<Object> collection(Function<String, Object> converter, Supplier<Collection<Object>> factory) {
+        return values -> values.stream().map(converter).collect(Collectors.toCollection(factory));
+    }
+}
+
 class PrimitiveConverter {
-    private static Map<Type, MethodInvoker.ValueConverter<Object>> primitives = Map.of(
-            int.class, singeValued(Integer::parseInt),
-            String.class, singeValued(s -> s),
-            double.class, singeValued(Double::parseDouble),
-            float.class, singeValued(Float::parseFloat),
-            short.class, singeValued(Short::parseShort),
-            byte.class, singeValued(Byte::parseByte),
-            boolean.class, singeValued(Boolean::parseBoolean)
+    private static Map<Type, Function<String, Object>> primitives = Map.ofEntries(
+            Map.entry(int.class, Integer::parseInt),
+            Map.entry(String.class, s -> s),
+            Map.entry(long.class, Long::parseLong),
+            Map.entry(double.class, Double::parseDouble),
+            Map.entry(float.class, Float::parseFloat),
+            Map.entry(short.class, Short::parseShort),
+            Map.entry(byte.class, Byte::parseByte),
+            Map.entry(char.class, PrimitiveConverter::parseChar),
+            Map.entry(boolean.class, Boolean::parseBoolean),
+            Map.entry(Integer.class, Integer::valueOf),
+            Map.entry(Long.class, Long::valueOf),
+            Map.entry(Double.class, Double::valueOf),
+            Map.entry(Float.class, Float::valueOf),
+            Map.entry(Short.class, Short::valueOf),
+            Map.entry(Byte.class, Byte::valueOf),
+            Map.entry(Character.class, PrimitiveConverter::parseChar),
+            Map.entry(Boolean.class, Boolean::valueOf)
     );
 
-    public static Optional<Object> convert(Parameter parameter, List<String> values) {
-        return Optional.ofNullable(primitives.get(parameter.getType()))
-                .map(c -> c.fromString(values));
+    public static Optional<Function<String, Object>> converter(Class<?> type) {
+        return Optional.ofNullable(primitives.get(type));
+    }
+
+    private static Character parseChar(String value) {
+        if (value.length() != 1) throw new IllegalArgumentException("not a single character: " + value);
+        return value.charAt(0);
+    }
+}
+
+class EnumConverter {
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static Optional<Function<String, Object>> converter(Class<?> type) {
+        if (!type.isEnum()) return Optional.empty();
+        return Optional.of(value -> Enum.valueOf((Class) type, value));
     }
 }
 
 class ConverterConstructor {
-    public static Optional<Object> convert(Class<?> converter, String value) {
-        try {
-            return Optional.ofNullable(converter.getConstructor(String.class).newInstance(value));
-        } catch (InstantiationException | IllegalAccessException | InvocationTargetException |
-                 NoSuchMethodException e) {
-            return Optional.empty();
-        }
+    public static Optional<Function<String, Object>> converter(Class<?> converter) {
+        return stream(converter.getConstructors()).filter(c -> c.getParameterCount() == 1 && c.getParameterTypes()[0] == String.class)
+                .findFirst().flatMap(ConverterHandles::unreflect).map(ConverterHandles::converter);
     }
 }
 
 class ConverterFactory {
-    public static Optional<Object> convert(Class<?> converter, String value) {
+    public static Optional<Function<String, Object>> converter(Class<?> converter) {
+        return stream(converter.getMethods()).filter(m -> m.getName().equals("valueOf") && Modifier.isStatic(m.getModifiers())
+                        && m.getParameterCount() == 1 && m.getParameterTypes()[0] == String.class)
+                .findFirst().flatMap(ConverterHandles::unreflect).map(ConverterHandles::converter);
+    }
+}
+
+class ConverterHandles {
+    private static final MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+    static Optional<MethodHandle> unreflect(Executable executable) {
         try {
-            return Optional.of(converter.getMethod("valueOf", String.class).invoke(null, value));
-        } catch (IllegalAccessException | InvocationTargetException | NoSuchMethodException e) {
+            MethodHandle handle = executable instanceof Constructor<?> constructor ? lookup.unreflectConstructor(constructor) : lookup.unreflect((Method) executable);
+            return Optional.of(handle.asType(methodType(Object.class, String.class)));
+        } catch (IllegalAccessException e) {
             return Optional.empty();
         }
     }
+
+    static MethodHandle lookup(Method method) throws IllegalAccessException {
+        try {
+            return lookup.unreflect(method);
+        } catch (IllegalAccessException e) {
+            if (!method.trySetAccessible()) throw e;
+            return lookup.unreflect(method);
+        }
+    }
+
+    static Function<String, Object> converter(MethodHandle handle) {
+        return value -> {
+            try {
+                return (Object) handle.invokeExact(value);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new RuntimeException(e);
+            }
+        };
+    }
 }
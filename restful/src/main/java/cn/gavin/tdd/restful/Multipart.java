@@ -0,0 +1,375 @@
+package cn.gavin.tdd.restful;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * A multipart/form-data request entity whose parts are streamed off the request one at a time, or buffered with
+ * those over the spill threshold moved to temporary files that are deleted when the request completes.
+ */
+public class Multipart implements Closeable {
+    static final String attribute = Multipart.class.getName();
+    static final String limitsAttribute = Limits.class.getName();
+
+    private final MultipartParser parser;
+    private final Limits limits;
+    private FileChannel spill;
+    private long spilled;
+    private long memory;
+    private int count;
+    private Part current;
+
+    Multipart(InputStream stream, String boundary, Limits limits) {
+        this.parser = new MultipartParser(stream, boundary);
+        this.limits = limits;
+    }
+
+    static Multipart of(HttpServletRequest request) throws IOException {
+        MediaType mediaType = MediaRange.mediaType(request.getContentType());
+        if (!mediaType.getType().equals("multipart") || !mediaType.getSubtype().equals("form-data"))
+            throw new StacklessWebApplicationException(Response.Status.UNSUPPORTED_MEDIA_TYPE);
+        String boundary = mediaType.getParameters().get("boundary");
+        if (boundary == null || boundary.isEmpty() || boundary.length() > 70) throw MultipartParser.malformed();
+        Limits limits = request.getAttribute(limitsAttribute) instanceof Limits configured ? configured : Limits.defaults;
+        Multipart multipart = new Multipart(request.getInputStream(), boundary, limits);
+        request.setAttribute(attribute, multipart);
+        return multipart;
+    }
+
+    public Part next() throws IOException {
+        if (current != null) current.discard();
+        Map<String, String> headers = parser.next();
+        if (headers != null && ++count > limits.maximumParts()) throw tooLarge();
+        current = headers == null ? null : new Part(headers, parser.new PartStream());
+        return current;
+    }
+
+    public List<Part> parts() throws IOException {
+        List<Part> parts = new ArrayList<>();
+        for (Part part = next(); part != null; part = next()) parts.add(buffer(part));
+        current = null;
+        return parts;
+    }
+
+    private Part buffer(Part part) throws IOException {
+        InputStream stream = part.stream;
+        byte[] chunk = new byte[8192];
+        int limit = (int) Math.min(limits.spillThreshold(), limits.maximumMemory() - memory);
+        byte[] content = new byte[Math.max(0, Math.min(limit, chunk.length))];
+        int length = 0;
+        for (int read; (read = stream.read(chunk)) >= 0; ) {
+            if (length + read > limit) return spill(part, content, length, chunk, read);
+            if (length + read > content.length) content = Arrays.copyOf(content, Math.min(limit, Math.max(length + read, content.length * 2)));
+            System.arraycopy(chunk, 0, content, length, read);
+            length += read;
+        }
+        memory += length;
+        return new Part(part.headers, new ByteArrayInputStream(content, 0, length), length, false);
+    }
+
+    private Part spill(Part part, byte[] content, int length, byte[] chunk, int read) throws IOException {
+        if (spill == null) spill = FileChannel.open(Files.createTempFile(limits.directory(), "multipart", ".part"),
+                StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+        long start = spilled;
+        write(ByteBuffer.wrap(content, 0, length));
+        do write(ByteBuffer.wrap(chunk, 0, read));
+        while ((read = part.stream.read(chunk)) >= 0);
+        return new Part(part.headers, new ChannelInputStream(spill, start, spilled), spilled - start, true);
+    }
+
+    private void write(ByteBuffer buffer) throws IOException {
+        if (spilled + buffer.remaining() > limits.maximumSpilled()) throw tooLarge();
+        while (buffer.hasRemaining()) spilled += spill.write(buffer, spilled);
+    }
+
+    private static RuntimeException tooLarge() {
+        return new StacklessWebApplicationException(Response.Status.REQUEST_ENTITY_TOO_LARGE);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (spill == null) return;
+        try {
+            spill.close();
+        } finally {
+            spill = null;
+        }
+    }
+
+    void release() {
+        try {
+            close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    record Limits(Path directory, int spillThreshold, long maximumMemory, int maximumParts, long maximumSpilled) {
+        static final Limits defaults = new Limits(Path.of(System.getProperty("java.io.tmpdir")), 64 * 1024, 1024 * 1024, 1000, 1024L * 1024 * 1024);
+
+        Limits {
+            if (spillThreshold < 0 || maximumMemory < 0 || maximumParts <= 0 || maximumSpilled < 0)
+                throw new IllegalArgumentException("multipart limits must not be negative");
+        }
+    }
+
+    public static class Part {
+        private final Map<String, String> headers;
+        private final InputStream stream;
+        private final long size;
+        private final boolean spilled;
+
+        Part(Map<String, String> headers, InputStream stream) {
+            this(headers, stream, -1, false);
+        }
+
+        Part(Map<String, String> headers, InputStream stream, long size, boolean spilled) {
+            this.headers = headers;
+            this.stream = stream;
+            this.size = size;
+            this.spilled = spilled;
+        }
+
+        public String getHeader(String name) {
+            return headers.get(name.toLowerCase(Locale.ROOT));
+        }
+
+        public String getName() {
+            return disposition("name");
+        }
+
+        public String getFileName() {
+            return disposition("filename");
+        }
+
+        public String getContentType() {
+            return getHeader(HttpHeaders.CONTENT_TYPE);
+        }
+
+        public InputStream getInputStream() {
+            return stream;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public boolean isSpilled() {
+            return spilled;
+        }
+
+        private String disposition(String parameter) {
+            String disposition = getHeader("Content-Disposition");
+            if (disposition == null) return null;
+            for (String part : disposition.split(";")) {
+                int equals = part.indexOf('=');
+                if (equals < 0 || !part.substring(0, equals).trim().equalsIgnoreCase(parameter)) continue;
+                String value = part.substring(equals + 1).trim();
+                return value.length() > 1 && value.startsWith("\"") && value.endsWith("\"") ? value.substring(1, value.length() - 1) : value;
+            }
+            return null;
+        }
+
+        void discard() throws IOException {
+            if (stream instanceof MultipartParser.PartStream part) part.discard();
+        }
+    }
+
+    static class ChannelInputStream extends InputStream {
+        private final FileChannel channel;
+        private final long end;
+        private long position;
+
+        ChannelInputStream(FileChannel channel, long start, long end) {
+            this.channel = channel;
+            this.position = start;
+            this.end = end;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) < 0 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            if (length == 0) return 0;
+            if (position >= end) return -1;
+            int read = channel.read(ByteBuffer.wrap(bytes, offset, (int) Math.min(length, end - position)), position);
+            if (read > 0) position += read;
+            return read;
+        }
+
+        @Override
+        public long skip(long count) {
+            long skipped = Math.max(0, Math.min(count, end - position));
+            position += skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return (int) Math.min(Integer.MAX_VALUE, end - position);
+        }
+    }
+}
+
+class MultipartParser {
+    private static final int maximumHeaders = 64;
+
+    private final InputStream stream;
+    private final byte[] delimiter;
+    private final byte[] buffer;
+    private int head;
+    private int tail;
+    private boolean exhausted;
+    private boolean started;
+    private boolean finished;
+    private PartStream current;
+
+    MultipartParser(InputStream stream, String boundary) {
+        this.stream = stream;
+        this.delimiter = ("\r\n--" + boundary).getBytes(StandardCharsets.ISO_8859_1);
+        this.buffer = new byte[8192];
+        buffer[0] = '\r';
+        buffer[1] = '\n';
+        this.tail = 2;
+    }
+
+    Map<String, String> next() throws IOException {
+        if (finished) return null;
+        if (current != null) current.discard();
+        else if (!started) while (data(null, 0, buffer.length) >= 0) ;
+        started = true;
+
+        ensure(2);
+        if (buffer[head] == '-' && buffer[head + 1] == '-') {
+            finished = true;
+            return null;
+        }
+        String line = line();
+        if (!line.isBlank()) throw malformed();
+
+        Map<String, String> headers = new HashMap<>();
+        for (String header = line(); !header.isEmpty(); header = line()) {
+            int colon = header.indexOf(':');
+            if (colon <= 0 || headers.size() == maximumHeaders) throw malformed();
+            headers.put(header.substring(0, colon).trim().toLowerCase(Locale.ROOT), header.substring(colon + 1).trim());
+        }
+        return headers;
+    }
+
+    private String line() throws IOException {
+        while (true) {
+            for (int i = head; i < tail - 1; i++)
+                if (buffer[i] == '\r' && buffer[i + 1] == '\n') {
+                    String line = new String(buffer, head, i - head, StandardCharsets.UTF_8);
+                    head = i + 2;
+                    return line;
+                }
+            if (head == 0 && tail == buffer.length || !fill()) throw malformed();
+        }
+    }
+
+    private void ensure(int count) throws IOException {
+        while (tail - head < count) if (!fill()) throw malformed();
+    }
+
+    private int data(byte[] bytes, int offset, int length) throws IOException {
+        while (true) {
+            int found = indexOf();
+            if (found == head) {
+                head += delimiter.length;
+                return -1;
+            }
+            int available = found >= 0 ? found - head : tail - head - (delimiter.length - 1);
+            if (available > 0) {
+                int count = Math.min(length, available);
+                if (bytes != null) System.arraycopy(buffer, head, bytes, offset, count);
+                head += count;
+                return count;
+            }
+            if (!fill()) throw malformed();
+        }
+    }
+
+    private int indexOf() {
+        byte first = delimiter[0];
+        for (int i = head, last = tail - delimiter.length; i <= last; i++) {
+            if (buffer[i] != first) continue;
+            int matched = 1;
+            while (matched < delimiter.length && buffer[i + matched] == delimiter[matched]) matched++;
+            if (matched == delimiter.length) return i;
+        }
+        return -1;
+    }
+
+    private boolean fill() throws IOException {
+        if (exhausted) return false;
+        if (head > 0) {
+            System.arraycopy(buffer, head, buffer, 0, tail - head);
+            tail -= head;
+            head = 0;
+        }
+        if (tail == buffer.length) return false;
+        int read = stream.read(buffer, tail, buffer.length - tail);
+        if (read < 0) {
+            exhausted = true;
+            return false;
+        }
+        tail += read;
+        return true;
+    }
+
+    static RuntimeException malformed() {
+        return new StacklessWebApplicationException(Response.Status.BAD_REQUEST);
+    }
+
+    class PartStream extends InputStream {
+        private boolean ended;
+
+        PartStream() {
+            current = this;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) < 0 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            if (ended || current != this) return -1;
+            if (length == 0) return 0;
+            int read = data(bytes, offset, length);
+            if (read < 0) ended = true;
+            return read;
+        }
+
+        void discard() throws IOException {
+            if (current != this) return;
+            while (!ended) if (data(null, 0, buffer.length) < 0) ended = true;
+            current = null;
+        }
+    }
+}
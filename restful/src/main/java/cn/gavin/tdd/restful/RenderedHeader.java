@@ -0,0 +1,42 @@
+package cn.gavin.tdd.restful;
+
+import jakarta.ws.rs.ext.RuntimeDelegate;
+
+import java.util.Objects;
+
+/**
+ * A header value rendered once and written to responses as is, bypassing header delegates.
+ */
+public final class RenderedHeader {
+    private final String value;
+
+    private RenderedHeader(String value) {
+        this.value = value;
+    }
+
+    public static RenderedHeader of(String value) {
+        return new RenderedHeader(Objects.requireNonNull(value));
+    }
+
+    @SuppressWarnings("unchecked")
+    public static RenderedHeader of(Object value) {
+        if (value instanceof String string) return of(string);
+        RuntimeDelegate.HeaderDelegate<Object> delegate = (RuntimeDelegate.HeaderDelegate<Object>) RuntimeDelegate.getInstance().createHeaderDelegate(value.getClass());
+        return of(delegate.toString(value));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof RenderedHeader other && value.equals(other.value);
+    }
+
+    @Override
+    public int hashCode() {
+        return value.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return value;
+    }
+}
@@ -3,15 +3,20 @@ package cn.gavin.tdd.restful;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.ws.rs.HttpMethod;
 import jakarta.ws.rs.Path;
-import jakarta.ws.rs.WebApplicationException;
 import jakarta.ws.rs.container.ResourceContext;
 import jakarta.ws.rs.core.GenericEntity;
 import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.Response;
 
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
 import java.util.*;
+import java.util.concurrent.CompletionStage;
 import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 import static java.util.Arrays.stream;
@@ -20,12 +25,28 @@ interface ResourceRouter {
     OutboundResponse dispatch(HttpServletRequest request, ResourceContext resourceContext);
 
     interface Resource extends UriHandler {
-        Optional<ResourceMethod> match(UriTemplate.MatchResult result, String httpMethod, String[] mediaTypes, ResourceContext resourceContext, UriInfoBuilder builder);
+        Optional<ResourceMethod> match(UriTemplate.MatchResult result, String httpMethod, String contentType, String[] mediaTypes, ResourceContext resourceContext, UriInfoBuilder builder);
+
+        default Optional<Route> route(UriTemplate.MatchResult result, String httpMethod, String contentType, String[] mediaTypes) {
+            return Optional.empty();
+        }
     }
 
     interface ResourceMethod extends UriHandler {
         String getHttpMethod();
 
+        default List<MediaRange> getProduces() {
+            return MediaRange.wildcard;
+        }
+
+        default List<MediaRange> getConsumes() {
+            return MediaRange.wildcard;
+        }
+
+        default Object version(ResourceContext resourceContext, UriInfoBuilder builder) {
+            return null;
+        }
+
         GenericEntity<?> call(ResourceContext resourceContext, UriInfoBuilder builder);
     }
 }
@@ -33,37 +54,185 @@ interface ResourceRouter {
 class DefaultResourceRouter implements ResourceRouter {
     private Runtime runtime;
     private List<Resource> rootResources;
+    private BoundedCache<RouteKey, Route> routes;
 
     public DefaultResourceRouter(Runtime runtime, List<Resource> rootResources) {
+        this(runtime, rootResources, null);
+    }
+
+    public DefaultResourceRouter(Runtime runtime, List<Resource> rootResources, BoundedCache<RouteKey, Route> routes) {
         this.runtime = runtime;
         this.rootResources = rootResources;
+        this.routes = routes;
     }
 
     @Override
     public OutboundResponse dispatch(HttpServletRequest request, ResourceContext resourceContext) {
         String path = request.getServletPath();
         UriInfoBuilder uri = runtime.createUriInfoBuilder(request);
+        String[] mediaTypes = mediaTypes(request);
+
+        Optional<ResourceMethod> method = routes == null ? findResourceMethod(request, mediaTypes, resourceContext, uri, path) : route(request, mediaTypes, resourceContext, uri, path);
+
+        if (method.isEmpty()) return Responses.notFound();
+
+        Optional<String> mediaType = method.flatMap(m -> MediaRange.negotiate(m.getProduces(), MediaRange.accept(mediaTypes)));
+        Validators validators = validators(request, method.get(), resourceContext, uri);
+        if (validators != null && validators.isNotModified(request)) return notModified(validators);
+        if (HttpMethod.GET.equals(request.getMethod()) && method.get() instanceof DefaultResourceMethod resource && (resource.getCached() != null || resource.isCoalesced())) {
+            ResponseCache.Policy policy = new ResponseCache.Policy(resource.getMethod(), resource.getCached(), resource.isCoalesced(), mediaType.orElse(null));
+            request.setAttribute(ResponseCache.policyAttribute, policy);
+            if (policy.coalesced() && request.getAttribute(SingleFlight.attribute) instanceof SingleFlight flights) {
+                SingleFlight.Flight flight = flights.join(request, policy);
+                request.setAttribute(SingleFlight.flightAttribute, flight);
+                if (!flight.isLeader()) return null;
+            }
+        }
+        return (OutboundResponse) method.map(m -> m.call(resourceContext, uri)).map(entity -> respond(entity, mediaType, validators)).orElseGet(Responses::noContent);
+    }
+
+    private static Validators validators(HttpServletRequest request, ResourceMethod method, ResourceContext resourceContext, UriInfoBuilder uri) {
+        if (!HttpMethod.GET.equals(request.getMethod()) && !HttpMethod.HEAD.equals(request.getMethod())) return null;
+        Object version = method.version(resourceContext, uri);
+        return version == null ? null : Validators.of(version);
+    }
+
+    private static OutboundResponse notModified(Validators validators) {
+        return (OutboundResponse) validated(Response.status(Response.Status.NOT_MODIFIED), validators).build();
+    }
+
+    private static OutboundResponse respond(GenericEntity<?> entity, Optional<String> mediaType, Validators validators) {
+        if (entity.getEntity() instanceof OutboundResponse response) return response;
+        if (entity.getEntity() instanceof CompletionStage<?> stage) {
+            Type type = completedType(entity.getType());
+            return (OutboundResponse) Response.ok(new GenericEntity<>(stage.thenApply(value -> resumed(value, type, mediaType, validators)), CompletionStage.class)).build();
+        }
+        return (OutboundResponse) ok(entity, mediaType, validators);
+    }
+
+    private static OutboundResponse resumed(Object value, Type type, Optional<String> mediaType, Validators validators) {
+        if (value == null) return Responses.noContent();
+        if (value instanceof OutboundResponse response) return response;
+        return (OutboundResponse) ok(new GenericEntity<>(value, type != null ? type : value.getClass()), mediaType, validators);
+    }
+
+    private static Type completedType(Type type) {
+        if (!(type instanceof ParameterizedType parameterized)) return null;
+        Type completed = parameterized.getActualTypeArguments()[0];
+        return completed instanceof ParameterizedType || (completed instanceof Class<?> c && c != Object.class) ? completed : null;
+    }
+
+    private static Response ok(GenericEntity<?> entity, Optional<String> mediaType, Validators validators) {
+        Response.ResponseBuilder builder = Response.ok(entity);
+        mediaType.ifPresent(builder::type);
+        return validated(builder, validators).build();
+    }
+
+    private static Response.ResponseBuilder validated(Response.ResponseBuilder builder, Validators validators) {
+        if (validators == null) return builder;
+        if (validators.etag() != null) builder.header(HttpHeaders.ETAG, validators.etag());
+        if (validators.lastModified() != null) builder.header(HttpHeaders.LAST_MODIFIED, validators.lastModifiedHeader());
+        return builder;
+    }
+
+    private Optional<ResourceMethod> findResourceMethod(HttpServletRequest request, String[] mediaTypes, ResourceContext resourceContext, UriInfoBuilder uri, String path) {
+        return UriHandlers.mapMatched(path, rootResources, (result, resource) -> findResourceMethod(request, mediaTypes, resourceContext, uri, result, resource));
+    }
+
+    private static Optional<ResourceMethod> findResourceMethod(HttpServletRequest request, String[] mediaTypes, ResourceContext resourceContext, UriInfoBuilder uri, Optional<UriTemplate.MatchResult> matched, Resource handler) {
+        return handler.match(matched.get(), request.getMethod(), request.getContentType(), mediaTypes, resourceContext, uri);
+    }
+
+    private Optional<ResourceMethod> route(HttpServletRequest request, String[] mediaTypes, ResourceContext resourceContext, UriInfoBuilder uri, String path) {
+        RouteKey key = new RouteKey(request.getMethod(), path, request.getContentType(), String.join(",", mediaTypes));
+        Route route = routes.get(key);
+        if (route == null) {
+            route = UriHandlers.mapMatched(path, rootResources, (result, resource) -> Optional.of(resource.route(result.get(), request.getMethod(), request.getContentType(), mediaTypes)))
+                    .orElseGet(() -> Optional.of(Route.unmatched())).orElseGet(Route::uncacheable);
+            routes.put(key, route);
+        }
+        return route.isCacheable() ? route.replay(resourceContext, uri) : findResourceMethod(request, mediaTypes, resourceContext, uri, path);
+    }
+
+    private static String[] mediaTypes(HttpServletRequest request) {
+        return Collections.list(request.getHeaders(HttpHeaders.ACCEPT)).toArray(String[]::new);
+    }
+
+    record RouteKey(String httpMethod, String path, String contentType, String accept) {
+    }
+}
+
+class Route {
+    private static final Route unmatched = new Route(List.of(), null);
+    private static final Route uncacheable = new Route(List.of(), null);
+
+    private final List<Step> steps;
+    private final ResourceRouter.ResourceMethod method;
+
+    private Route(List<Step> steps, ResourceRouter.ResourceMethod method) {
+        this.steps = steps;
+        this.method = method;
+    }
+
+    static Route to(ResourceRouter.ResourceMethod method) {
+        return new Route(List.of(), method);
+    }
+
+    static Route unmatched() {
+        return unmatched;
+    }
 
-        Optional<ResourceMethod> method = UriHandlers.mapMatched(path, rootResources, (result, resource) -> findResourceMethod(request, resourceContext, uri, result, resource));
+    static Route uncacheable() {
+        return uncacheable;
+    }
 
-        if (method.isEmpty()) return (OutboundResponse) Response.status(Response.Status.NOT_FOUND).build();
+    Route through(Step step) {
+        if (method == null) return this;
+        List<Step> steps = new ArrayList<>();
+        steps.add(step);
+        steps.addAll(this.steps);
+        return new Route(List.copyOf(steps), method);
+    }
 
-        return (OutboundResponse) method.map(m -> m.call(resourceContext, uri)).map(entity -> (entity.getEntity() instanceof OutboundResponse) ? (OutboundResponse) entity.getEntity() : Response.ok(entity).build()).orElseGet(() -> Response.noContent().build());
+    boolean isCacheable() {
+        return this != uncacheable;
     }
 
-    private static Optional<ResourceMethod> findResourceMethod(HttpServletRequest request, ResourceContext resourceContext, UriInfoBuilder uri, Optional<UriTemplate.MatchResult> matched, Resource handler) {
-        return handler.match(matched.get(), request.getMethod(), Collections.list(request.getHeaders(HttpHeaders.ACCEPT)).toArray(String[]::new), resourceContext, uri);
+    Optional<ResourceRouter.ResourceMethod> replay(ResourceContext resourceContext, UriInfoBuilder builder) {
+        for (Step step : steps) step.apply(resourceContext, builder);
+        return Optional.ofNullable(method);
+    }
+
+    interface Step {
+        void apply(ResourceContext resourceContext, UriInfoBuilder builder);
     }
 }
 
 class DefaultResourceMethod implements ResourceRouter.ResourceMethod {
+    private static final Pattern variable = Pattern.compile("\\{\\w[\\w.-]*(:([^{}]+))?}");
+
     private String httpMethod;
+    private String template;
     private UriTemplate uriTemplate;
+    private List<MediaRange> produces;
+    private List<MediaRange> consumes;
     private Method method;
+    private MethodInvoker invoker;
+    private MethodInvoker version;
+    private Cached cached;
+    private boolean coalesced;
 
     public DefaultResourceMethod(Method method) {
         this.method = method;
-        this.uriTemplate = new PathTemplate(Optional.ofNullable(method.getAnnotation(Path.class)).map(a -> a.value()).orElse(""));
+        this.cached = method.getAnnotation(Cached.class);
+        this.coalesced = method.isAnnotationPresent(Coalesced.class);
+        this.invoker = MethodInvoker.of(method);
+        this.version = Optional.ofNullable(method.getAnnotation(Version.class)).map(v -> MethodInvoker.of(version(method, v.value()))).orElse(null);
+        String path = Optional.ofNullable(method.getAnnotation(Path.class)).map(a -> a.value()).orElse("");
+        this.template = template(path);
+        this.uriTemplate = new PathTemplate(path);
+        this.produces = MediaRange.produces(method);
+        this.consumes = MediaRange.consumes(method);
         this.httpMethod = stream(method.getAnnotations()).filter(a -> a.annotationType().isAnnotationPresent(HttpMethod.class)).findFirst().get().annotationType().getAnnotation(HttpMethod.class).value();
     }
 
@@ -77,10 +246,58 @@ class DefaultResourceMethod implements ResourceRouter.ResourceMethod {
         return uriTemplate;
     }
 
+    String getTemplate() {
+        return template;
+    }
+
+    static String template(String path) {
+        String template = variable.matcher(path).replaceAll(v -> Matcher.quoteReplacement(v.group(2) == null ? "{}" : "{:" + v.group(2) + "}"));
+        return template.replaceAll("^/+|/+$", "");
+    }
+
+    Method getMethod() {
+        return method;
+    }
+
+    Cached getCached() {
+        return cached;
+    }
+
+    boolean isCoalesced() {
+        return coalesced;
+    }
+
+    @Override
+    public List<MediaRange> getProduces() {
+        return produces;
+    }
+
+    @Override
+    public List<MediaRange> getConsumes() {
+        return consumes;
+    }
+
+    private static Method version(Method method, String name) {
+        List<Method> candidates = stream(method.getDeclaringClass().getMethods()).filter(m -> m.getName().equals(name) && !Modifier.isStatic(m.getModifiers())).toList();
+        if (candidates.isEmpty()) throw new IllegalArgumentException("version method not found: " + name);
+        if (candidates.size() > 1) throw new IllegalArgumentException("version method is overloaded: " + name);
+        Method version = candidates.get(0);
+        if (version.getReturnType() == void.class) throw new IllegalArgumentException("version method returns void: " + name);
+        if (stream(version.getParameters()).anyMatch(RequestEntity::isEntity))
+            throw new IllegalArgumentException("version method parameters must be injected: " + name);
+        return version;
+    }
+
+    @Override
+    public Object version(ResourceContext resourceContext, UriInfoBuilder builder) {
+        return version == null ? null : version.invoke(resourceContext, builder);
+    }
+
     @Override
     public GenericEntity<?> call(ResourceContext resourceContext, UriInfoBuilder builder) {
-        Object result = MethodInvoker.invoke(method, resourceContext, builder);
-        return result != null ? new GenericEntity<>(result, method.getGenericReturnType()) : null;
+        Object result = invoker.invoke(resourceContext, builder);
+        if (result == null) return null;
+        return new GenericEntity<>(result, invoker.isSuspended() ? CompletionStage.class : method.getGenericReturnType());
     }
 
     @Override
@@ -91,34 +308,97 @@ class DefaultResourceMethod implements ResourceRouter.ResourceMethod {
 
 class ResourceMethods {
     private Map<String, List<ResourceRouter.ResourceMethod>> resourceMethods;
+    private List<OptionResourceMethod> options;
+    private OptionResourceMethod unmatchedOptions = new OptionResourceMethod(null, Set.of(HttpMethod.OPTIONS));
 
     public ResourceMethods(Method[] methods) {
-        this.resourceMethods = getResourceMethods(methods);
+        List<DefaultResourceMethod> declared = stream(methods).filter(m -> stream(m.getAnnotations()).anyMatch(a -> a.annotationType().isAnnotationPresent(HttpMethod.class))).map(DefaultResourceMethod::new).toList();
+        this.resourceMethods = getResourceMethods(declared);
+        this.options = getOptions(declared);
+    }
+
+    private static Map<String, List<ResourceRouter.ResourceMethod>> getResourceMethods(List<DefaultResourceMethod> declared) {
+        Map<String, List<ResourceRouter.ResourceMethod>> methods = declared.stream().collect(Collectors.groupingBy(ResourceRouter.ResourceMethod::getHttpMethod, Collectors.toList()));
+        Set<String> heads = declared.stream().filter(m -> HttpMethod.HEAD.equals(m.getHttpMethod())).map(DefaultResourceMethod::getTemplate).collect(Collectors.toSet());
+        declared.stream().filter(m -> HttpMethod.GET.equals(m.getHttpMethod()) && !heads.contains(m.getTemplate()))
+                .forEach(m -> methods.computeIfAbsent(HttpMethod.HEAD, k -> new ArrayList<>()).add(new HeadResourceMethod(m)));
+        return methods;
+    }
+
+    private static List<OptionResourceMethod> getOptions(List<DefaultResourceMethod> declared) {
+        Map<String, List<DefaultResourceMethod>> templates = declared.stream().collect(Collectors.groupingBy(DefaultResourceMethod::getTemplate, LinkedHashMap::new, Collectors.toList()));
+        return templates.values().stream().map(methods -> new OptionResourceMethod(methods.get(0).getUriTemplate(), allowed(methods))).toList();
     }
 
-    private static Map<String, List<ResourceRouter.ResourceMethod>> getResourceMethods(Method[] methods) {
-        return stream(methods).filter(m -> stream(m.getAnnotations()).anyMatch(a -> a.annotationType().isAnnotationPresent(HttpMethod.class))).map(DefaultResourceMethod::new).collect(Collectors.groupingBy(ResourceRouter.ResourceMethod::getHttpMethod));
+    private static Set<String> allowed(List<DefaultResourceMethod> methods) {
+        Set<String> allowed = methods.stream().map(ResourceRouter.ResourceMethod::getHttpMethod).collect(Collectors.toSet());
+        allowed.add(HttpMethod.OPTIONS);
+        if (allowed.contains(HttpMethod.GET)) allowed.add(HttpMethod.HEAD);
+        return Set.copyOf(allowed);
     }
 
     public Optional<ResourceRouter.ResourceMethod> findResourceMethods(String path, String method) {
-        return findMethod(path, method).or(() -> findAlternative(path, method));
+        return findResourceMethods(path, method, null, new String[0]);
+    }
+
+    public Optional<ResourceRouter.ResourceMethod> findResourceMethods(String path, String method, String contentType, String[] mediaTypes) {
+        return findMethod(path, method, MediaRange.contentType(contentType), MediaRange.accept(mediaTypes)).or(() -> findAlternative(path, method));
     }
 
     private Optional<ResourceRouter.ResourceMethod> findAlternative(String path, String method) {
-        if (HttpMethod.HEAD.equals(method)) return findMethod(path, HttpMethod.GET).map(HeadResourceMethod::new);
-        if (HttpMethod.OPTIONS.equals(method)) return Optional.of(new OptionResourceMethod(path));
+        if (HttpMethod.OPTIONS.equals(method))
+            return Optional.of(UriHandlers.match(path, options, r -> r.getRemaining() == null).orElse(unmatchedOptions));
         return Optional.empty();
     }
 
-    private Optional<ResourceRouter.ResourceMethod> findMethod(String path, String method) {
-        return Optional.ofNullable(resourceMethods.get(method)).flatMap(methods -> UriHandlers.match(path, methods, r -> r.getRemaining() == null));
+    private Optional<ResourceRouter.ResourceMethod> findMethod(String path, String method, Optional<MediaRange> contentType, List<MediaRange> accept) {
+        List<ResourceRouter.ResourceMethod> methods = resourceMethods.get(method);
+        if (methods == null) return Optional.empty();
+
+        List<ResourceRouter.ResourceMethod> matched = matched(path, methods);
+        if (matched.isEmpty()) return Optional.empty();
+
+        ResourceRouter.ResourceMethod selected = null;
+        long best = -1;
+        boolean consumable = false;
+        for (ResourceRouter.ResourceMethod candidate : matched) {
+            if (!MediaRange.isConsumable(candidate.getConsumes(), contentType)) continue;
+            consumable = true;
+            long score = MediaRange.score(candidate.getProduces(), accept);
+            if (score > best) {
+                best = score;
+                selected = candidate;
+            }
+        }
+        if (selected == null)
+            throw new StacklessWebApplicationException(consumable ? Response.Status.NOT_ACCEPTABLE : Response.Status.UNSUPPORTED_MEDIA_TYPE);
+        return Optional.of(selected);
     }
 
-    class OptionResourceMethod implements ResourceRouter.ResourceMethod {
-        private String path;
+    private static List<ResourceRouter.ResourceMethod> matched(String path, List<ResourceRouter.ResourceMethod> methods) {
+        List<ResourceRouter.ResourceMethod> matched = new ArrayList<>();
+        UriTemplate.MatchResult best = null;
+        for (ResourceRouter.ResourceMethod method : methods) {
+            UriTemplate.MatchResult result = method.getUriTemplate().match(path).filter(r -> r.getRemaining() == null).orElse(null);
+            if (result == null) continue;
+            int order = best == null ? -1 : result.compareTo(best);
+            if (order < 0) {
+                best = result;
+                matched.clear();
+            }
+            if (order <= 0) matched.add(method);
+        }
+        return matched;
+    }
 
-        public OptionResourceMethod(String path) {
-            this.path = path;
+    static class OptionResourceMethod implements ResourceRouter.ResourceMethod {
+        private UriTemplate uriTemplate;
+        private RenderedHeader allow;
+        private volatile GenericEntity<Response> response;
+
+        public OptionResourceMethod(UriTemplate uriTemplate, Set<String> allowed) {
+            this.uriTemplate = uriTemplate;
+            this.allow = RenderedHeader.of(allowed.stream().sorted().collect(Collectors.joining(", ")));
         }
 
         @Override
@@ -128,19 +408,15 @@ class ResourceMethods {
 
         @Override
         public GenericEntity<?> call(ResourceContext resourceContext, UriInfoBuilder builder) {
-            return new GenericEntity<>(Response.noContent().allow(findAllowedMethods()).build(), Response.class);
-        }
-
-        private Set<String> findAllowedMethods() {
-            Set<String> allowed = List.of(HttpMethod.GET, HttpMethod.HEAD, HttpMethod.OPTIONS, HttpMethod.PUT, HttpMethod.POST, HttpMethod.DELETE, HttpMethod.POST).stream().filter(method -> findMethod(path, method).isPresent()).collect(Collectors.toSet());
-            allowed.add(HttpMethod.OPTIONS);
-            if (allowed.contains(HttpMethod.GET)) allowed.add(HttpMethod.HEAD);
-            return allowed;
+            GenericEntity<Response> response = this.response;
+            if (response == null)
+                this.response = response = new GenericEntity<>(Response.noContent().header(HttpHeaders.ALLOW, allow).build(), Response.class);
+            return response;
         }
 
         @Override
         public UriTemplate getUriTemplate() {
-            return null;
+            return uriTemplate;
         }
     }
 }
@@ -157,6 +433,21 @@ class HeadResourceMethod implements ResourceRouter.ResourceMethod {
         return HttpMethod.HEAD;
     }
 
+    @Override
+    public List<MediaRange> getProduces() {
+        return method.getProduces();
+    }
+
+    @Override
+    public List<MediaRange> getConsumes() {
+        return method.getConsumes();
+    }
+
+    @Override
+    public Object version(ResourceContext resourceContext, UriInfoBuilder builder) {
+        return method.version(resourceContext, builder);
+    }
+
     @Override
     public GenericEntity<?> call(ResourceContext resourceContext, UriInfoBuilder builder) {
         method.call(resourceContext, builder);
@@ -175,22 +466,29 @@ class HeadResourceMethod implements ResourceRouter.ResourceMethod {
 }
 
 class SubResourceLocators {
-    private final List<ResourceRouter.Resource> resources;
+    private final List<SubResourceLocator> resources;
 
     public SubResourceLocators(Method[] methods) {
-        resources = stream(methods).filter(m -> m.isAnnotationPresent(Path.class) && stream(m.getAnnotations()).noneMatch(a -> a.annotationType().isAnnotationPresent(HttpMethod.class))).map((Function<Method, ResourceRouter.Resource>) SubResourceLocator::new).toList();
+        resources = stream(methods).filter(m -> m.isAnnotationPresent(Path.class) && stream(m.getAnnotations()).noneMatch(a -> a.annotationType().isAnnotationPresent(HttpMethod.class))).map(SubResourceLocator::new).toList();
     }
 
-    public Optional<ResourceRouter.ResourceMethod> findSubResourceMethods(String path, String method, String[] mediaTypes, ResourceContext resourceContext, UriInfoBuilder builder) {
-        return UriHandlers.mapMatched(path, resources, (result, locator) -> locator.match(result.get(), method, mediaTypes, resourceContext, builder));
+    public Optional<ResourceRouter.ResourceMethod> findSubResourceMethods(String path, String method, String contentType, String[] mediaTypes, ResourceContext resourceContext, UriInfoBuilder builder) {
+        return UriHandlers.mapMatched(path, resources, (result, locator) -> locator.match(result.get(), method, contentType, mediaTypes, resourceContext, builder));
+    }
+
+    public Optional<Route> route(String path, String method, String contentType, String[] mediaTypes) {
+        return UriHandlers.mapMatched(path, resources, (result, locator) -> Optional.of(locator.route(result.get(), method, contentType, mediaTypes)))
+                .orElseGet(() -> Optional.of(Route.unmatched()));
     }
 
     static class SubResourceLocator implements ResourceRouter.Resource {
         private PathTemplate uriTemplate;
         private Method method;
+        private MethodInvoker invoker;
 
         public SubResourceLocator(Method method) {
             this.method = method;
+            this.invoker = MethodInvoker.of(method);
             this.uriTemplate = new PathTemplate(method.getAnnotation(Path.class).value());
         }
 
@@ -205,16 +503,21 @@ class SubResourceLocators {
         }
 
         @Override
-        public Optional<ResourceRouter.ResourceMethod> match(UriTemplate.MatchResult result, String httpMethod, String[] mediaTypes, ResourceContext resourceContext, UriInfoBuilder builder) {
-            try {
-                builder.addMatchedPathParameters(result.getMatchedPathParameters());
-                Object subResource = MethodInvoker.invoke(method, resourceContext, builder);
-                return new ResourceHandler(subResource, uriTemplate).match(excludePathParameters(result), httpMethod, mediaTypes, resourceContext, builder);
-            }catch (WebApplicationException e){
-                throw e;
-            } catch (Exception e) {
-                throw new RuntimeException(e);
-            }
+        public Optional<ResourceRouter.ResourceMethod> match(UriTemplate.MatchResult result, String httpMethod, String contentType, String[] mediaTypes, ResourceContext resourceContext, UriInfoBuilder builder) {
+            builder.addMatchedPathParameters(result.getMatchedPathParameters());
+            Object subResource = invoker.invoke(resourceContext, builder);
+            return new ResourceHandler(subResource, uriTemplate).match(excludePathParameters(result), httpMethod, contentType, mediaTypes, resourceContext, builder);
+        }
+
+        @Override
+        public Optional<Route> route(UriTemplate.MatchResult result, String httpMethod, String contentType, String[] mediaTypes) {
+            if (!method.isAnnotationPresent(CacheableRoute.class)) return Optional.empty();
+            Map<String, String> parameters = Map.copyOf(result.getMatchedPathParameters());
+            return ResourceHandler.route(method.getReturnType(), ResourceHandler.remaining(result), httpMethod, contentType, mediaTypes)
+                    .map(route -> route.through((resourceContext, builder) -> {
+                        builder.addMatchedPathParameters(parameters);
+                        builder.addMatchedResource(invoker.invoke(resourceContext, builder));
+                    }));
         }
 
         private static UriTemplate.MatchResult excludePathParameters(UriTemplate.MatchResult result) {
@@ -244,7 +547,22 @@ class SubResourceLocators {
 }
 
 class ResourceHandler implements ResourceRouter.Resource {
+    private static final ClassValue<ResourceMethods> methods = new ClassValue<>() {
+        @Override
+        protected ResourceMethods computeValue(Class<?> resourceClass) {
+            return new ResourceMethods(resourceClass.getMethods());
+        }
+    };
+
+    private static final ClassValue<SubResourceLocators> locators = new ClassValue<>() {
+        @Override
+        protected SubResourceLocators computeValue(Class<?> resourceClass) {
+            return new SubResourceLocators(resourceClass.getMethods());
+        }
+    };
+
     private UriTemplate uriTemplate;
+    private final Class<?> resourceClass;
     private final ResourceMethods resourceMethods;
     private SubResourceLocators subResourceLocators;
     private Function<ResourceContext, Object> resource;
@@ -264,17 +582,38 @@ class ResourceHandler implements ResourceRouter.Resource {
 
     private ResourceHandler(Class<?> resourceClass, UriTemplate uriTemplate, Function<ResourceContext, Object> resource) {
         this.uriTemplate = uriTemplate;
-        this.resourceMethods = new ResourceMethods(resourceClass.getMethods());
-        this.subResourceLocators = new SubResourceLocators(resourceClass.getMethods());
+        this.resourceClass = resourceClass;
+        this.resourceMethods = methods.get(resourceClass);
+        this.subResourceLocators = locators.get(resourceClass);
         this.resource = resource;
     }
 
     @Override
-    public Optional<ResourceRouter.ResourceMethod> match(UriTemplate.MatchResult result, String httpMethod, String[] mediaTypes, ResourceContext resourceContext, UriInfoBuilder builder) {
+    public Optional<ResourceRouter.ResourceMethod> match(UriTemplate.MatchResult result, String httpMethod, String contentType, String[] mediaTypes, ResourceContext resourceContext, UriInfoBuilder builder) {
         builder.addMatchedResource(resource.apply(resourceContext));
         builder.addMatchedPathParameters(result.getMatchedPathParameters());
-        String remaining = Optional.ofNullable(result.getRemaining()).orElse("");
-        return resourceMethods.findResourceMethods(remaining, httpMethod).or(() -> subResourceLocators.findSubResourceMethods(remaining, httpMethod, mediaTypes, resourceContext, builder));
+        String remaining = remaining(result);
+        return resourceMethods.findResourceMethods(remaining, httpMethod, contentType, mediaTypes).or(() -> subResourceLocators.findSubResourceMethods(remaining, httpMethod, contentType, mediaTypes, resourceContext, builder));
+    }
+
+    @Override
+    public Optional<Route> route(UriTemplate.MatchResult result, String httpMethod, String contentType, String[] mediaTypes) {
+        Map<String, String> parameters = Map.copyOf(result.getMatchedPathParameters());
+        return route(resourceClass, remaining(result), httpMethod, contentType, mediaTypes)
+                .map(route -> route.through((resourceContext, builder) -> {
+                    builder.addMatchedResource(resource.apply(resourceContext));
+                    builder.addMatchedPathParameters(parameters);
+                }));
+    }
+
+    static Optional<Route> route(Class<?> resourceClass, String remaining, String httpMethod, String contentType, String[] mediaTypes) {
+        Optional<ResourceRouter.ResourceMethod> method = methods.get(resourceClass).findResourceMethods(remaining, httpMethod, contentType, mediaTypes);
+        if (method.isPresent()) return method.map(Route::to);
+        return locators.get(resourceClass).route(remaining, httpMethod, contentType, mediaTypes);
+    }
+
+    static String remaining(UriTemplate.MatchResult result) {
+        return Optional.ofNullable(result.getRemaining()).orElse("");
     }
 
     @Override
@@ -1,66 +1,602 @@
 package cn.gavin.tdd.restful;
 
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncListener;
 import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import jakarta.ws.rs.HttpMethod;
 import jakarta.ws.rs.WebApplicationException;
 import jakarta.ws.rs.core.GenericEntity;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.MultivaluedMap;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
 import jakarta.ws.rs.ext.ExceptionMapper;
 import jakarta.ws.rs.ext.MessageBodyWriter;
-import jakarta.ws.rs.ext.Providers;
 import jakarta.ws.rs.ext.RuntimeDelegate;
+import org.eclipse.jetty.server.HttpOutput;
+import org.eclipse.jetty.util.Callback;
 
+import java.io.Closeable;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Supplier;
+import java.util.stream.BaseStream;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
 
 public class ResourceServlet extends HttpServlet {
+    private static final int flushInterval = 64;
+    private static final int maximumBuffered = 8;
+
     private Runtime runtime;
-    private Providers providers;
+    private CachedProviders providers;
+    private HeaderDelegates headerDelegates = new HeaderDelegates();
+    private Executor executor;
+    private Semaphore permits;
+    private long timeout = 30_000;
+    private BufferPool buffers = new BufferPool(8192, 1024);
+    private Compression compression = new Compression(3, 1024, Compression.defaultMediaTypes);
+    private Decompression decompression = new Decompression(16 * 1024 * 1024);
+    private long maximumEntity = 16 * 1024 * 1024;
+    private Multipart.Limits multipart = Multipart.Limits.defaults;
+    private volatile ResponseCache responses;
+    private final ReentrantLock creation = new ReentrantLock();
+    private SingleFlight flights = new SingleFlight();
 
     public ResourceServlet(Runtime runtime) {
         this.runtime = runtime;
-        this.providers = runtime.getProviders();
+        this.providers = new CachedProviders(new BuiltinProviders(runtime.getProviders()));
+    }
+
+    public ResourceServlet(Runtime runtime, Executor executor, int maximumConcurrency) {
+        this(runtime, executor, maximumConcurrency, Duration.ofSeconds(30));
+    }
+
+    public ResourceServlet(Runtime runtime, Executor executor, int maximumConcurrency, Duration timeout) {
+        this(runtime);
+        if (maximumConcurrency <= 0) throw new IllegalArgumentException("maximum concurrency must be positive");
+        if (timeout.isNegative() || timeout.isZero()) throw new IllegalArgumentException("timeout must be positive");
+        this.executor = executor;
+        this.permits = new Semaphore(maximumConcurrency);
+        this.timeout = timeout.toMillis();
+    }
+
+    void setCompression(Compression compression) {
+        this.compression = compression;
+    }
+
+    void setDecompression(Decompression decompression) {
+        this.decompression = decompression;
+    }
+
+    void setMaximumEntity(long maximumEntity) {
+        this.maximumEntity = maximumEntity;
+    }
+
+    void setMultipartLimits(Multipart.Limits multipart) {
+        this.multipart = multipart;
+    }
+
+    void setResponseCache(ResponseCache responses) {
+        this.responses = responses;
+    }
+
+    void setSingleFlight(SingleFlight flights) {
+        this.flights = flights;
+    }
+
+    public long coalescedInvocations() {
+        return flights.saved();
+    }
+
+    public void invalidateResponses() {
+        if (responses != null) responses.invalidateAll();
+    }
+
+    public void invalidateResponses(Class<?> resourceClass) {
+        if (responses != null) responses.invalidate(resourceClass);
+    }
+
+    public double responsesHitRate() {
+        return responses == null ? 0 : responses.hitRate();
+    }
+
+    public void invalidateProviders() {
+        providers.invalidateAll();
+    }
+
+    public double providersHitRate() {
+        return providers.hitRate();
     }
 
     @Override
     protected void service(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+        Exchange exchange = new Exchange(decompression == null ? req : decompression.decode(req), resp);
+        if (HttpMethod.GET.equals(req.getMethod())) {
+            ResponseCache.CachedResponse cached = responses == null ? null : responses.lookup(req);
+            if (cached != null) {
+                replay(exchange, cached);
+                return;
+            }
+        }
+        execute(exchange);
+    }
+
+    private void follow(Exchange exchange, SingleFlight.Flight flight) {
+        if (!exchange.request.isAsyncSupported()) {
+            shared(exchange, flight.await().join());
+            return;
+        }
+        exchange.startAsync();
+        flight.await().thenAcceptAsync(response -> shared(exchange, response), task -> resume(exchange, task));
+    }
+
+    private void resume(Exchange exchange, Runnable task) {
+        if (executor != null)
+            try {
+                executor.execute(task);
+                return;
+            } catch (RejectedExecutionException ignored) {
+            }
+        exchange.start(task);
+    }
+
+    private void shared(Exchange exchange, ResponseCache.CachedResponse response) {
+        if (response == null) {
+            execute(exchange);
+            return;
+        }
+        flights.shared();
+        replay(exchange, response);
+    }
+
+    private void replay(Exchange exchange, ResponseCache.CachedResponse cached) {
+        try {
+            if (!cached(exchange, cached)) exchange.complete();
+        } catch (Throwable throwable) {
+            failed(exchange, throwable);
+        }
+    }
+
+    private void execute(Exchange exchange) {
+        HttpServletRequest req = exchange.request;
+        if (executor == null || !req.isAsyncSupported()) {
+            dispatch(exchange);
+            return;
+        }
+
+        exchange.startAsync();
+        Object dispatching = exchange.arm();
+        try {
+            executor.execute(() -> {
+                permits.acquireUninterruptibly();
+                try {
+                    if (!exchange.isExpired()) dispatch(exchange);
+                } finally {
+                    permits.release();
+                }
+            });
+        } catch (RejectedExecutionException exception) {
+            exchange.dispatched();
+            respond(exchange, () -> Responses.status(Response.Status.SERVICE_UNAVAILABLE));
+            return;
+        }
+        expire(exchange, dispatching);
+    }
+
+    private void expire(Exchange exchange) {
+        expire(exchange, exchange.arm());
+    }
+
+    private void expire(Exchange exchange, Object dispatching) {
+        CompletableFuture.delayedExecutor(timeout, TimeUnit.MILLISECONDS).execute(() -> {
+            if (exchange.expire(dispatching)) respond(exchange, () -> Responses.status(Response.Status.SERVICE_UNAVAILABLE));
+        });
+    }
+
+    private void dispatch(Exchange exchange) {
         ResourceRouter router = runtime.getResourceRouter();
 
-        respond(resp, () -> router.dispatch(req, runtime.createResourceContext(req, resp)));
+        OutboundResponse response;
+        exchange.request.setAttribute(RequestEntity.providersAttribute, providers);
+        exchange.request.setAttribute(RequestEntity.limitAttribute, maximumEntity);
+        exchange.request.setAttribute(Multipart.limitsAttribute, multipart);
+        exchange.request.setAttribute(SingleFlight.attribute, flights);
+        exchange.request.removeAttribute(SingleFlight.flightAttribute);
+        try {
+            response = router.dispatch(exchange.request, runtime.createResourceContext(exchange.request, exchange.response));
+            if (!exchange.dispatched()) return;
+            if (exchange.request.getAttribute(SingleFlight.flightAttribute) instanceof SingleFlight.Flight flight) {
+                if (!flight.isLeader()) {
+                    follow(exchange, flight);
+                    return;
+                }
+                exchange.flight = flight;
+            }
+            if (exchange.request.getAttribute(ResponseCache.policyAttribute) instanceof ResponseCache.Policy policy)
+                learn(policy);
+        } catch (Throwable throwable) {
+            if (!exchange.dispatched()) return;
+            if (exchange.request.getAttribute(SingleFlight.flightAttribute) instanceof SingleFlight.Flight flight && flight.isLeader())
+                exchange.flight = flight;
+            failed(exchange, throwable);
+            return;
+        }
+
+        CompletionStage<OutboundResponse> pending = pending(response);
+        if (pending != null) suspend(exchange, pending);
+        else respond(exchange, () -> response);
+    }
+
+    private void learn(ResponseCache.Policy policy) {
+        if (policy.cached() == null || responses != null) return;
+        creation.lock();
+        try {
+            if (responses == null) responses = new ResponseCache(4096);
+        } finally {
+            creation.unlock();
+        }
+    }
+
+    private void suspend(Exchange exchange, CompletionStage<OutboundResponse> pending) {
+        if (!exchange.isAsync() && !exchange.request.isAsyncSupported()) {
+            try {
+                OutboundResponse response = pending.toCompletableFuture().join();
+                respond(exchange, () -> response);
+            } catch (CompletionException | CancellationException exception) {
+                failed(exchange, unwrap(exception));
+            }
+            if (pending instanceof SuspendedResponse.Pending<?> suspension) suspension.completed();
+            return;
+        }
+
+        exchange.startAsync();
+        if (pending instanceof SuspendedResponse.Pending<?> suspension) exchange.listen(suspension);
+        expire(exchange);
+        pending.whenComplete((response, error) -> {
+            if (!exchange.dispatched()) return;
+            if (error == null) respond(exchange, () -> response);
+            else failed(exchange, unwrap(error));
+        });
     }
 
-    private void respond(HttpServletResponse resp, Supplier<OutboundResponse> supplier) {
+    private void respond(Exchange exchange, Supplier<OutboundResponse> supplier) {
         try {
-            respond(resp, supplier.get());
-        } catch (WebApplicationException exception) {
-            respond(resp, () -> (OutboundResponse) exception.getResponse());
+            respond(exchange, supplier.get());
         } catch (Throwable throwable) {
-            respond(resp, () -> from(throwable));
+            failed(exchange, throwable);
         }
     }
 
-    private void respond(HttpServletResponse resp, OutboundResponse response) throws IOException {
+    private void failed(Exchange exchange, Throwable throwable) {
+        if (throwable instanceof WebApplicationException exception) respond(exchange, () -> (OutboundResponse) exception.getResponse());
+        else respond(exchange, () -> from(throwable));
+    }
+
+    private void respond(Exchange exchange, OutboundResponse response) throws IOException {
+        HttpServletResponse resp = exchange.response;
         resp.setStatus(response.getStatus());
         headers(resp, response.getHeaders());
 
-        body(resp, response, response.getGenericEntity());
+        GenericEntity<?> entity = response.getGenericEntity();
+        if (entity != null && entity.getEntity() instanceof StaticResources.Variants variants) entity = variant(exchange, variants);
+        if (isNotModified(exchange, response.getStatus())) {
+            resp.setStatus(Response.Status.NOT_MODIFIED.getStatusCode());
+            discard(entity);
+            exchange.complete();
+            return;
+        }
+        if (!body(exchange, response, entity)) exchange.complete();
     }
 
-    private void body(HttpServletResponse resp, OutboundResponse response, GenericEntity entity) throws IOException {
-        if (null == entity) return;
-        MessageBodyWriter writer = providers.getMessageBodyWriter(entity.getRawType(), entity.getType(), response.getAnnotations(), response.getMediaType());
-        writer.writeTo(entity.getEntity(), entity.getRawType(), entity.getType(), response.getAnnotations(), response.getMediaType(),
-                response.getHeaders(), resp.getOutputStream());
+    private static GenericEntity<?> variant(Exchange exchange, StaticResources.Variants variants) {
+        if (!Compression.accepts(exchange.request.getHeader(HttpHeaders.ACCEPT_ENCODING), "gzip"))
+            return new GenericEntity<>(variants.identity(), ByteBuffer.class);
+        exchange.response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        exchange.response.setHeader(HttpHeaders.ETAG, variants.gzipEtag().toString());
+        return new GenericEntity<>(variants.gzip(), ByteBuffer.class);
     }
 
-    private static void headers(HttpServletResponse resp, MultivaluedMap<String, Object> headers) {
-        for (String name : headers.keySet())
-            for (Object value : headers.get(name)) {
-                RuntimeDelegate.HeaderDelegate headerDelegate = RuntimeDelegate.getInstance().createHeaderDelegate(value.getClass());
-                resp.addHeader(name, headerDelegate.toString(value));
+    private static boolean isNotModified(Exchange exchange, int status) {
+        HttpServletRequest req = exchange.request;
+        HttpServletResponse resp = exchange.response;
+        if (!HttpMethod.GET.equals(req.getMethod()) && !HttpMethod.HEAD.equals(req.getMethod())) return false;
+        if (status != Response.Status.OK.getStatusCode()) return false;
+        String etag = resp.getHeader(HttpHeaders.ETAG), lastModified = resp.getHeader(HttpHeaders.LAST_MODIFIED);
+        return (etag != null || lastModified != null) && Validators.isNotModified(req, etag, lastModified);
+    }
+
+    private static void discard(GenericEntity<?> entity) throws IOException {
+        if (entity == null) return;
+        if (entity.getEntity() instanceof Closeable closeable) closeable.close();
+        else if (entity.getEntity() instanceof BaseStream<?, ?> stream) stream.close();
+    }
+
+    private boolean body(Exchange exchange, OutboundResponse response, GenericEntity entity) throws IOException {
+        if (null == entity) return false;
+        HttpServletResponse resp = exchange.response;
+        if (entity.getEntity() instanceof StreamingOutput output) {
+            OutputStream stream = resp.getOutputStream();
+            output.write(stream);
+            stream.flush();
+            return false;
+        }
+        if (entity.getEntity() instanceof Stream<?> elements) {
+            try (elements) {
+                elements(resp, response, elementType(entity.getType()), elements.iterator());
+            }
+            return false;
+        }
+        if (entity.getEntity() instanceof Iterator<?> elements) {
+            elements(resp, response, elementType(entity.getType()), elements);
+            return false;
+        }
+        BinaryEntity binary = BinaryEntity.isBuffer(entity.getEntity()) && hasApplicationWriter(response, entity) ? null : BinaryEntity.of(entity.getEntity());
+        if (binary != null) return binary(exchange, response, binary);
+        String encoding = encoding(exchange, response.getStatus(), response.getMediaType());
+        BufferPool.PooledOutputStream content = buffers.newOutputStream(maximumBuffered, () -> overflow(resp, encoding));
+        try {
+            write(response, entity.getEntity(), entity.getRawType(), entity.getType(), content);
+        } catch (Throwable throwable) {
+            content.release();
+            throw throwable;
+        }
+        if (content.isSpilled()) {
+            content.drain();
+            return false;
+        }
+        if (response.getStatus() == Response.Status.OK.getStatusCode() && exchange.request.getAttribute(ResponseCache.policyAttribute) instanceof ResponseCache.Policy policy) {
+            ResponseCache.CachedResponse serialized = ResponseCache.CachedResponse.of(policy, response, content);
+            if (responses != null && policy.cached() != null) responses.store(exchange.request, policy, serialized);
+            if (exchange.flight != null) exchange.landing = serialized;
+        }
+        return buffered(exchange, response.getStatus(), content, encoding);
+    }
+
+    private boolean cached(Exchange exchange, ResponseCache.CachedResponse cached) throws IOException {
+        HttpServletResponse resp = exchange.response;
+        resp.setStatus(cached.status());
+        headers(resp, cached.headers());
+        String ifNoneMatch = exchange.request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null && resp.containsHeader(HttpHeaders.ETAG) && Validators.matches(ifNoneMatch, resp.getHeader(HttpHeaders.ETAG))) {
+            resp.setStatus(Response.Status.NOT_MODIFIED.getStatusCode());
+            return false;
+        }
+        String encoding = encoding(exchange, cached.status(), cached.mediaType());
+        BufferPool.PooledOutputStream content = buffers.newOutputStream();
+        content.write(cached.entity());
+        return buffered(exchange, cached.status(), content, encoding);
+    }
+
+    private boolean buffered(Exchange exchange, int status, BufferPool.PooledOutputStream content, String encoding) throws IOException {
+        HttpServletResponse resp = exchange.response;
+        boolean compressed = encoding != null && content.size() >= compression.minimumLength();
+        if (isNotModified(exchange, status, content, compressed ? encoding : null)) {
+            content.release();
+            resp.setStatus(Response.Status.NOT_MODIFIED.getStatusCode());
+            return false;
+        }
+        if (compressed) content = compress(resp, content, encoding);
+
+        resp.setContentLengthLong(content.size());
+        ServletOutputStream output = resp.getOutputStream();
+        if (!exchange.request.isAsyncSupported()) {
+            try {
+                for (int i = 0; i < content.buffers(); i++) output.write(content.buffer(i), 0, content.length(i));
+            } finally {
+                content.release();
             }
+            return false;
+        }
+        exchange.startAsync();
+        output.setWriteListener(new BufferedWrite(output, content, exchange::complete));
+        return true;
+    }
+
+    private static boolean isNotModified(Exchange exchange, int status, BufferPool.PooledOutputStream content, String encoding) {
+        HttpServletRequest req = exchange.request;
+        HttpServletResponse resp = exchange.response;
+        if (!HttpMethod.GET.equals(req.getMethod()) && !HttpMethod.HEAD.equals(req.getMethod())) return false;
+        if (status != Response.Status.OK.getStatusCode() || resp.containsHeader(HttpHeaders.ETAG)) return false;
+
+        CRC32C crc = new CRC32C();
+        for (int i = 0; i < content.buffers(); i++) crc.update(content.buffer(i), 0, content.length(i));
+        String etag = "W/\"" + Long.toHexString(content.size()) + "-" + Long.toHexString(crc.getValue()) + (encoding == null ? "" : "-" + encoding) + "\"";
+        resp.setHeader(HttpHeaders.ETAG, etag);
+        String ifNoneMatch = req.getHeader(HttpHeaders.IF_NONE_MATCH);
+        return ifNoneMatch != null && Validators.matches(ifNoneMatch, etag);
+    }
+
+    private String encoding(Exchange exchange, int status, MediaType mediaType) {
+        HttpServletResponse resp = exchange.response;
+        if (compression == null || status == Response.Status.NO_CONTENT.getStatusCode()
+                || status == Response.Status.NOT_MODIFIED.getStatusCode() || resp.containsHeader(HttpHeaders.CONTENT_ENCODING))
+            return null;
+        String contentType = resp.getContentType() != null || mediaType == null ? resp.getContentType() : mediaType.getType() + "/" + mediaType.getSubtype();
+        if (!compression.isCompressible(contentType)) return null;
+        resp.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        return compression.negotiate(exchange.request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+    }
+
+    private OutputStream overflow(HttpServletResponse resp, String encoding) throws IOException {
+        if (encoding == null) return resp.getOutputStream();
+        resp.setHeader(HttpHeaders.CONTENT_ENCODING, encoding);
+        return compression.compress(resp.getOutputStream(), encoding);
+    }
+
+    private BufferPool.PooledOutputStream compress(HttpServletResponse resp, BufferPool.PooledOutputStream content, String encoding) throws IOException {
+        BufferPool.PooledOutputStream compressed = buffers.newOutputStream();
+        try (OutputStream stream = compression.compress(compressed, encoding)) {
+            for (int i = 0; i < content.buffers(); i++) stream.write(content.buffer(i), 0, content.length(i));
+        } catch (Throwable throwable) {
+            content.release();
+            compressed.release();
+            throw throwable;
+        }
+        if (compressed.size() >= content.size()) {
+            compressed.release();
+            return content;
+        }
+        content.release();
+        resp.setHeader(HttpHeaders.CONTENT_ENCODING, encoding);
+        return compressed;
+    }
+
+    private boolean binary(Exchange exchange, OutboundResponse response, BinaryEntity binary) throws IOException {
+        HttpServletRequest req = exchange.request;
+        HttpServletResponse resp = exchange.response;
+        long length = binary.length();
+        boolean get = HttpMethod.GET.equals(req.getMethod());
+        if (get || HttpMethod.HEAD.equals(req.getMethod())) resp.setHeader("Accept-Ranges", "bytes");
+
+        List<ByteRange> ranges = get && response.getStatus() == Response.Status.OK.getStatusCode() && ifRange(req, resp)
+                ? ByteRange.parse(req.getHeader("Range"), length) : null;
+        if (ranges == null) {
+            resp.setContentLengthLong(length);
+            return send(exchange, binary, 0, length);
+        }
+        if (ranges.isEmpty()) {
+            try (binary) {
+                resp.setStatus(Response.Status.REQUESTED_RANGE_NOT_SATISFIABLE.getStatusCode());
+                resp.setHeader("Content-Range", "bytes */" + length);
+                resp.setContentLength(0);
+            }
+            return false;
+        }
+
+        resp.setStatus(Response.Status.PARTIAL_CONTENT.getStatusCode());
+        if (ranges.size() == 1) {
+            ByteRange range = ranges.get(0);
+            resp.setHeader("Content-Range", range.contentRange(length));
+            resp.setContentLengthLong(range.length());
+            return send(exchange, binary, range.start(), range.length());
+        }
+
+        String boundary = UUID.randomUUID().toString();
+        String contentType = resp.getContentType();
+        resp.setContentType("multipart/byteranges; boundary=" + boundary);
+        try (binary) {
+            OutputStream stream = resp.getOutputStream();
+            for (ByteRange range : ranges) {
+                String part = "\r\n--" + boundary + "\r\n"
+                        + (contentType == null ? "" : HttpHeaders.CONTENT_TYPE + ": " + contentType + "\r\n")
+                        + "Content-Range: " + range.contentRange(length) + "\r\n\r\n";
+                stream.write(part.getBytes(StandardCharsets.ISO_8859_1));
+                binary.transferTo(stream, range.start(), range.length());
+            }
+            stream.write(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.ISO_8859_1));
+            stream.flush();
+        }
+        return false;
+    }
+
+    private static boolean ifRange(HttpServletRequest req, HttpServletResponse resp) {
+        String condition = req.getHeader("If-Range");
+        if (condition == null) return true;
+        if (condition.startsWith("W/")) return false;
+        return condition.startsWith("\"") ? condition.equals(resp.getHeader(HttpHeaders.ETAG)) : condition.equals(resp.getHeader(HttpHeaders.LAST_MODIFIED));
+    }
+
+    private boolean send(Exchange exchange, BinaryEntity binary, long start, long count) throws IOException {
+        ServletOutputStream output = exchange.response.getOutputStream();
+        if (binary instanceof FileEntity file && file.isSmall(count)) {
+            try (binary) {
+                file.copyTo(output, start, count, buffers);
+            }
+            return false;
+        }
+        if (!(output instanceof HttpOutput jetty) || !exchange.request.isAsyncSupported()) {
+            try (binary) {
+                binary.transferTo(output, start, count);
+            }
+            return false;
+        }
+
+        exchange.startAsync();
+        Callback completion = Callback.from(exchange::complete, error -> exchange.complete());
+        if (!binary.isMappable(count) && binary instanceof FileEntity file) {
+            jetty.sendContent(file.channel(start, count), completion);
+            return true;
+        }
+        try (binary) {
+            jetty.sendContent(binary.slice(start, count), completion);
+        }
+        return true;
+    }
+
+    private boolean hasApplicationWriter(OutboundResponse response, GenericEntity<?> entity) {
+        MessageBodyWriter<?> writer = providers.getMessageBodyWriter(entity.getRawType(), entity.getType(), response.getAnnotations(), response.getMediaType());
+        return writer != null && !(writer instanceof JsonProvider);
+    }
+
+    private void elements(HttpServletResponse resp, OutboundResponse response, Type type, Iterator<?> elements) throws IOException {
+        OutputStream stream = resp.getOutputStream();
+        boolean json = JsonProvider.isJson(response.getMediaType());
+        if (json) stream.write('[');
+        boolean first = true;
+        for (int written = 0; elements.hasNext(); written++) {
+            Object element = elements.next();
+            if (element == null) continue;
+            if (json && !first) stream.write(',');
+            first = false;
+            write(response, element, element.getClass(), type != null ? type : element.getClass(), stream);
+            if (written % flushInterval == 0) stream.flush();
+        }
+        if (json) stream.write(']');
+        stream.flush();
+    }
+
+    private void write(OutboundResponse response, Object entity, Class<?> type, Type genericType, OutputStream stream) throws IOException {
+        MessageBodyWriter writer = providers.getMessageBodyWriter(type, genericType, response.getAnnotations(), response.getMediaType());
+        writer.writeTo(entity, type, genericType, response.getAnnotations(), response.getMediaType(), response.getHeaders(), stream);
+    }
+
+    private static Type elementType(Type type) {
+        if (!(type instanceof ParameterizedType parameterized)) return null;
+        Type element = parameterized.getActualTypeArguments()[0];
+        return element instanceof ParameterizedType || (element instanceof Class<?> c && c != Object.class) ? element : null;
+    }
+
+    private void headers(HttpServletResponse resp, MultivaluedMap<String, Object> headers) {
+        for (String name : headers.keySet())
+            for (Object value : headers.get(name))
+                resp.addHeader(name, value instanceof RenderedHeader rendered ? rendered.toString() : headerDelegates.toString(value));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static CompletionStage<OutboundResponse> pending(OutboundResponse response) {
+        GenericEntity<?> entity = response.getGenericEntity();
+        return entity != null && entity.getEntity() instanceof CompletionStage<?> stage ? (CompletionStage<OutboundResponse>) stage : null;
+    }
+
+    private static Throwable unwrap(Throwable throwable) {
+        while (throwable instanceof CompletionException && throwable.getCause() != null) throwable = throwable.getCause();
+        return throwable;
     }
 
     private OutboundResponse from(Throwable throwable) {
@@ -68,3 +604,88 @@ public class ResourceServlet extends HttpServlet {
         return (OutboundResponse) mapper.toResponse(throwable);
     }
 }
+
+class HeaderDelegates {
+    private volatile Snapshot snapshot;
+
+    @SuppressWarnings("unchecked")
+    String toString(Object value) {
+        RuntimeDelegate runtime = RuntimeDelegate.getInstance();
+        Snapshot current = snapshot;
+        if (current == null || current.runtime != runtime) snapshot = current = new Snapshot(runtime);
+
+        RuntimeDelegate.HeaderDelegate<Object> delegate = current.delegates.get(value.getClass());
+        if (delegate == null) {
+            delegate = (RuntimeDelegate.HeaderDelegate<Object>) runtime.createHeaderDelegate(value.getClass());
+            if (delegate != null) current.delegates.put(value.getClass(), delegate);
+        }
+        return delegate.toString(value);
+    }
+
+    private record Snapshot(RuntimeDelegate runtime, Map<Class<?>, RuntimeDelegate.HeaderDelegate<Object>> delegates) {
+        Snapshot(RuntimeDelegate runtime) {
+            this(runtime, new ConcurrentHashMap<>());
+        }
+    }
+}
+
+class Exchange {
+    private static final Object expired = new Object();
+
+    final HttpServletRequest request;
+    final HttpServletResponse response;
+    private AsyncContext async;
+    SingleFlight.Flight flight;
+    ResponseCache.CachedResponse landing;
+    private final AtomicReference<Object> dispatching = new AtomicReference<>();
+
+    Exchange(HttpServletRequest request, HttpServletResponse response) {
+        this.request = request;
+        this.response = response;
+    }
+
+    boolean isAsync() {
+        return async != null;
+    }
+
+    Object arm() {
+        Object token = new Object();
+        dispatching.set(token);
+        return token;
+    }
+
+    boolean expire(Object token) {
+        return dispatching.compareAndSet(token, expired);
+    }
+
+    boolean isExpired() {
+        return dispatching.get() == expired;
+    }
+
+    boolean dispatched() {
+        for (Object state = dispatching.get(); state != expired; state = dispatching.get())
+            if (dispatching.compareAndSet(state, null)) return true;
+        return false;
+    }
+
+    void startAsync() {
+        if (async != null) return;
+        async = request.startAsync();
+        async.setTimeout(0);
+    }
+
+    void listen(AsyncListener listener) {
+        async.addListener(listener);
+    }
+
+    void start(Runnable task) {
+        async.start(task);
+    }
+
+    void complete() {
+        if (flight != null) flight.land(landing);
+        if (request instanceof Decompression.DecodedRequest decoded) decoded.release();
+        if (request.getAttribute(Multipart.attribute) instanceof Multipart multipart) multipart.release();
+        if (async != null) async.complete();
+    }
+}
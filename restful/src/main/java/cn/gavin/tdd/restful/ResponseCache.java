@@ -0,0 +1,114 @@
+package cn.gavin.tdd.restful;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.MultivaluedHashMap;
+import jakarta.ws.rs.core.MultivaluedMap;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+class ResponseCache {
+    static final String policyAttribute = ResponseCache.class.getName() + ".policy";
+
+    private final BoundedCache<RequestKey, Policy> policies;
+    private final Map<Method, BoundedCache<ResponseKey, CachedResponse>> responses = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public ResponseCache(int maximumPaths) {
+        this.policies = new BoundedCache<>(maximumPaths);
+    }
+
+    CachedResponse lookup(HttpServletRequest request) {
+        Policy policy = policies.get(RequestKey.of(request));
+        if (policy == null) return null;
+        BoundedCache<ResponseKey, CachedResponse> cached = responses.get(policy.method());
+        ResponseKey key = policy.key(request);
+        CachedResponse response = cached == null ? null : cached.get(key);
+        if (response != null && response.isExpired(System.nanoTime())) {
+            cached.invalidate(key, response);
+            response = null;
+        }
+        if (response == null) misses.increment();
+        else hits.increment();
+        return response;
+    }
+
+    void store(HttpServletRequest request, Policy policy, CachedResponse response) {
+        RequestKey key = RequestKey.of(request);
+        if (policies.get(key) == null) {
+            misses.increment();
+            policies.put(key, policy);
+        }
+        responses.computeIfAbsent(policy.method(), method -> new BoundedCache<>(policy.cached().maxEntries())).put(policy.key(request), response);
+    }
+
+    public void invalidateAll() {
+        responses.values().forEach(BoundedCache::invalidateAll);
+    }
+
+    public void invalidate(Class<?> resourceClass) {
+        responses.forEach((method, cached) -> {
+            if (method.getDeclaringClass().isAssignableFrom(resourceClass)) cached.invalidateAll();
+        });
+    }
+
+    int size(Method method) {
+        BoundedCache<ResponseKey, CachedResponse> cached = responses.get(method);
+        return cached == null ? 0 : cached.size();
+    }
+
+    public double hitRate() {
+        long hit = hits.sum();
+        long total = hit + misses.sum();
+        return total == 0 ? 0 : (double) hit / total;
+    }
+
+    record Policy(Method method, Cached cached, boolean coalesced, String mediaType) {
+        ResponseKey key(HttpServletRequest request) {
+            if (cached == null) {
+                String query = request.getQueryString();
+                return new ResponseKey(method, request.getServletPath(), query == null ? List.of() : List.of(List.of(query)), mediaType);
+            }
+            List<List<String>> query = new ArrayList<>(cached.query().length);
+            for (String name : cached.query()) {
+                String[] values = request.getParameterValues(name);
+                query.add(values == null ? List.of() : List.of(values));
+            }
+            return new ResponseKey(method, request.getServletPath(), query, mediaType);
+        }
+    }
+
+    record RequestKey(String path, List<String> accept) {
+        static RequestKey of(HttpServletRequest request) {
+            return new RequestKey(request.getServletPath(), Collections.list(request.getHeaders(HttpHeaders.ACCEPT)));
+        }
+    }
+
+    record ResponseKey(Method method, String path, List<List<String>> query, String mediaType) {
+    }
+
+    record CachedResponse(int status, MultivaluedMap<String, Object> headers, MediaType mediaType, byte[] entity, long expiresAt) {
+        static CachedResponse of(Policy policy, OutboundResponse response, BufferPool.PooledOutputStream content) {
+            byte[] entity = new byte[(int) content.size()];
+            for (int i = 0, position = 0; i < content.buffers(); position += content.length(i), i++)
+                System.arraycopy(content.buffer(i), 0, entity, position, content.length(i));
+
+            MultivaluedMap<String, Object> headers = new MultivaluedHashMap<>();
+            response.getHeaders().forEach((name, values) -> headers.put(name, List.copyOf(values)));
+            long ttl = policy.cached() == null ? 0 : policy.cached().unit().toNanos(policy.cached().ttl());
+            return new CachedResponse(response.getStatus(), headers, response.getMediaType(), entity, System.nanoTime() + ttl);
+        }
+
+        boolean isExpired(long now) {
+            return now - expiresAt >= 0;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package cn.gavin.tdd.restful;
+
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.ext.RuntimeDelegate;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+class Responses {
+    private static final Set<Response.Status> cacheable = Set.of(Response.Status.NOT_FOUND, Response.Status.NO_CONTENT,
+            Response.Status.METHOD_NOT_ALLOWED, Response.Status.NOT_ACCEPTABLE, Response.Status.UNSUPPORTED_MEDIA_TYPE,
+            Response.Status.SERVICE_UNAVAILABLE);
+
+    private static volatile Snapshot snapshot;
+
+    static OutboundResponse notFound() {
+        return status(Response.Status.NOT_FOUND);
+    }
+
+    static OutboundResponse noContent() {
+        return status(Response.Status.NO_CONTENT);
+    }
+
+    static OutboundResponse methodNotAllowed() {
+        return status(Response.Status.METHOD_NOT_ALLOWED);
+    }
+
+    static OutboundResponse notAcceptable() {
+        return status(Response.Status.NOT_ACCEPTABLE);
+    }
+
+    static OutboundResponse status(Response.Status status) {
+        if (!cacheable.contains(status)) return (OutboundResponse) Response.status(status).build();
+
+        RuntimeDelegate runtime = RuntimeDelegate.getInstance();
+        Snapshot current = snapshot;
+        if (current == null || current.runtime != runtime) snapshot = current = new Snapshot(runtime);
+        return current.responses.computeIfAbsent(status, s -> (OutboundResponse) Response.status(s).build());
+    }
+
+    static OutboundResponse status(int status) {
+        Response.Status known = Response.Status.fromStatusCode(status);
+        return known == null ? (OutboundResponse) Response.status(status).build() : status(known);
+    }
+
+    private record Snapshot(RuntimeDelegate runtime, Map<Response.Status, OutboundResponse> responses) {
+        Snapshot(RuntimeDelegate runtime) {
+            this(runtime, new ConcurrentHashMap<>());
+        }
+    }
+}
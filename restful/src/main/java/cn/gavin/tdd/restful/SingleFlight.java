@@ -0,0 +1,84 @@
+package cn.gavin.tdd.restful;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+class SingleFlight {
+    static final String attribute = SingleFlight.class.getName();
+    static final String flightAttribute = Flight.class.getName();
+
+    private final Map<ResponseCache.ResponseKey, Flight> flights = new ConcurrentHashMap<>();
+    private final LongAdder saved = new LongAdder();
+    private final long patience;
+
+    public SingleFlight() {
+        this(Duration.ofSeconds(30));
+    }
+
+    public SingleFlight(Duration patience) {
+        this.patience = patience.toMillis();
+    }
+
+    Flight join(HttpServletRequest request, ResponseCache.Policy policy) {
+        ResponseCache.ResponseKey key = policy.key(request);
+        Flight leader = new Flight(key, true);
+        Flight flight = flights.putIfAbsent(key, leader);
+        return flight == null ? leader : new Flight(flight.key, false, flight.result);
+    }
+
+    void shared() {
+        saved.increment();
+    }
+
+    long saved() {
+        return saved.sum();
+    }
+
+    int inFlight() {
+        return flights.size();
+    }
+
+    int waiting() {
+        return flights.values().stream().mapToInt(flight -> flight.result.getNumberOfDependents()).sum();
+    }
+
+    class Flight {
+        private final ResponseCache.ResponseKey key;
+        private final boolean leader;
+        private final CompletableFuture<ResponseCache.CachedResponse> result;
+
+        Flight(ResponseCache.ResponseKey key, boolean leader) {
+            this(key, leader, new CompletableFuture<>());
+        }
+
+        Flight(ResponseCache.ResponseKey key, boolean leader, CompletableFuture<ResponseCache.CachedResponse> result) {
+            this.key = key;
+            this.leader = leader;
+            this.result = result;
+        }
+
+        boolean isLeader() {
+            return leader;
+        }
+
+        CompletableFuture<ResponseCache.CachedResponse> result() {
+            return result;
+        }
+
+        CompletableFuture<ResponseCache.CachedResponse> await() {
+            return result.copy().completeOnTimeout(null, patience, TimeUnit.MILLISECONDS);
+        }
+
+        void land(ResponseCache.CachedResponse response) {
+            if (!leader || result.isDone()) return;
+            flights.remove(key, this);
+            result.complete(response);
+        }
+    }
+}
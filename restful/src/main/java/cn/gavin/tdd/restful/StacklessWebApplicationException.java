@@ -0,0 +1,26 @@
+package cn.gavin.tdd.restful;
+
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.core.Response;
+
+/**
+ * A {@link WebApplicationException} for expected outcomes such as 404, which skips filling in the stack trace.
+ */
+public class StacklessWebApplicationException extends WebApplicationException {
+    public StacklessWebApplicationException(Response.Status status) {
+        super(Responses.status(status));
+    }
+
+    public StacklessWebApplicationException(int status) {
+        super(Responses.status(status));
+    }
+
+    public StacklessWebApplicationException(Response response) {
+        super(response);
+    }
+
+    @Override
+    public Throwable fillInStackTrace() {
+        return this;
+    }
+}
@@ -0,0 +1,184 @@
+package cn.gavin.tdd.restful;
+
+import jakarta.ws.rs.HttpMethod;
+import jakarta.ws.rs.container.ResourceContext;
+import jakarta.ws.rs.core.GenericEntity;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Response;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+
+class StaticResources implements ResourceRouter.Resource {
+    private static final RenderedHeader acceptEncoding = RenderedHeader.of(HttpHeaders.ACCEPT_ENCODING);
+    private static final Set<String> compressible = Set.of("application/json", "application/javascript", "application/xml", "image/svg+xml");
+
+    private final UriTemplate uriTemplate;
+    private final Path root;
+    private final long maximumCachedLength;
+    private final long revalidateAfter;
+    private final BoundedCache<Path, Asset> assets;
+
+    public StaticResources(String path, Path root) {
+        this(path, root, 64 * 1024, 256);
+    }
+
+    public StaticResources(String path, Path root, long maximumCachedLength, int maximumCached) {
+        this(path, root, maximumCachedLength, maximumCached, Duration.ofSeconds(1));
+    }
+
+    public StaticResources(String path, Path root, long maximumCachedLength, int maximumCached, Duration revalidateAfter) {
+        this.uriTemplate = new PathTemplate(path);
+        this.root = root.toAbsolutePath().normalize();
+        this.maximumCachedLength = Math.min(maximumCachedLength, Integer.MAX_VALUE - 8);
+        this.revalidateAfter = revalidateAfter.toNanos();
+        this.assets = new BoundedCache<>(maximumCached);
+    }
+
+    @Override
+    public UriTemplate getUriTemplate() {
+        return uriTemplate;
+    }
+
+    @Override
+    public Optional<ResourceRouter.ResourceMethod> match(UriTemplate.MatchResult result, String httpMethod, String contentType, String[] mediaTypes, ResourceContext resourceContext, UriInfoBuilder builder) {
+        if (!HttpMethod.GET.equals(httpMethod) && !HttpMethod.HEAD.equals(httpMethod)) return Optional.empty();
+        Path requested = root.resolve(ResourceHandler.remaining(result).replaceFirst("^/+", "")).normalize();
+        if (!requested.startsWith(root)) return Optional.empty();
+        try {
+            return Optional.ofNullable(asset(requested)).map(asset -> new StaticResourceMethod(httpMethod, asset));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    Asset asset(Path requested) throws IOException {
+        long now = System.nanoTime();
+        Asset cached = assets.get(requested);
+        if (cached != null && now - cached.checked() < revalidateAfter) return cached;
+
+        Path file = Files.isDirectory(requested) ? requested.resolve("index.html") : requested;
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        if (!attributes.isRegularFile()) return null;
+        if (cached != null && cached.file().equals(file) && cached.isCurrent(attributes)) {
+            Asset revalidated = cached.checked(now);
+            assets.put(requested, revalidated);
+            return revalidated;
+        }
+
+        Asset asset = Asset.of(file, attributes, attributes.size() <= maximumCachedLength ? maximumCachedLength : -1, now);
+        if (asset.content() != null) assets.put(requested, asset);
+        return asset;
+    }
+
+    double hitRate() {
+        return assets.hitRate();
+    }
+
+    record Variants(ByteBuffer identity, ByteBuffer gzip, RenderedHeader gzipEtag) {
+    }
+
+    record Asset(Path file, FileTime modified, long length, ByteBuffer content, ByteBuffer compressed,
+                 RenderedHeader contentType, RenderedHeader etag, RenderedHeader compressedEtag, RenderedHeader lastModified, long checked) {
+
+        static Asset of(Path file, BasicFileAttributes attributes, long maximumLength, long checked) throws IOException {
+            String contentType = contentType(file);
+            String tag = Long.toHexString(attributes.lastModifiedTime().toMillis()) + "-" + Long.toHexString(attributes.size());
+            ByteBuffer content = maximumLength < 0 ? null : read(file, maximumLength);
+            ByteBuffer compressed = content != null && isCompressible(contentType) ? compress(content) : null;
+            return new Asset(file, attributes.lastModifiedTime(), content != null ? content.remaining() : attributes.size(), content, compressed,
+                    RenderedHeader.of(contentType), RenderedHeader.of("\"" + tag + "\""), RenderedHeader.of("\"" + tag + "-gzip\""),
+                    RenderedHeader.of(Validators.httpDate.format(attributes.lastModifiedTime().toInstant())), checked);
+        }
+
+        Asset checked(long now) {
+            return new Asset(file, modified, length, content, compressed, contentType, etag, compressedEtag, lastModified, now);
+        }
+
+        boolean isCurrent(BasicFileAttributes attributes) {
+            return modified.equals(attributes.lastModifiedTime()) && length == attributes.size();
+        }
+
+        private static ByteBuffer read(Path file, long maximumLength) throws IOException {
+            try (InputStream stream = Files.newInputStream(file)) {
+                byte[] bytes = stream.readNBytes((int) maximumLength + 1);
+                return bytes.length > maximumLength ? null : ByteBuffer.wrap(bytes).asReadOnlyBuffer();
+            }
+        }
+
+        private static ByteBuffer compress(ByteBuffer content) throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (GZIPOutputStream stream = new GZIPOutputStream(bytes)) {
+                Channels.newChannel(stream).write(content.duplicate());
+            }
+            return bytes.size() < content.remaining() ? ByteBuffer.wrap(bytes.toByteArray()).asReadOnlyBuffer() : null;
+        }
+
+        private static String contentType(Path file) throws IOException {
+            String type = Files.probeContentType(file);
+            if (type == null) type = URLConnection.guessContentTypeFromName(file.getFileName().toString());
+            return type == null ? "application/octet-stream" : type;
+        }
+
+        private static boolean isCompressible(String contentType) {
+            return contentType.startsWith("text/") || compressible.contains(contentType);
+        }
+    }
+
+    class StaticResourceMethod implements ResourceRouter.ResourceMethod {
+        private final String httpMethod;
+        private final Asset asset;
+
+        StaticResourceMethod(String httpMethod, Asset asset) {
+            this.httpMethod = httpMethod;
+            this.asset = asset;
+        }
+
+        @Override
+        public String getHttpMethod() {
+            return httpMethod;
+        }
+
+        @Override
+        public UriTemplate getUriTemplate() {
+            return uriTemplate;
+        }
+
+        @Override
+        public GenericEntity<?> call(ResourceContext resourceContext, UriInfoBuilder builder) {
+            GenericEntity<?> entity = HttpMethod.HEAD.equals(httpMethod) ? null
+                    : asset.compressed() != null ? new GenericEntity<>(new Variants(asset.content().duplicate(), asset.compressed().duplicate(), asset.compressedEtag()), Variants.class)
+                    : asset.content() != null ? new GenericEntity<>(asset.content().duplicate(), ByteBuffer.class)
+                    : new GenericEntity<>(asset.file(), Path.class);
+            Response.ResponseBuilder response = Response.ok(entity).header(HttpHeaders.CONTENT_TYPE, asset.contentType())
+                    .header(HttpHeaders.LAST_MODIFIED, asset.lastModified()).header(HttpHeaders.ETAG, asset.etag());
+            if (entity == null) response.header(HttpHeaders.CONTENT_LENGTH, RenderedHeader.of(Long.toString(asset.length())));
+            if (asset.compressed() != null) response.header(HttpHeaders.VARY, acceptEncoding);
+            return new GenericEntity<>(response.build(), Response.class);
+        }
+
+        @Override
+        public String toString() {
+            return "StaticResources." + asset.file();
+        }
+    }
+}
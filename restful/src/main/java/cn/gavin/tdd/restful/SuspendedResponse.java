@@ -0,0 +1,199 @@
+package cn.gavin.tdd.restful;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.container.AsyncResponse;
+import jakarta.ws.rs.container.CompletionCallback;
+import jakarta.ws.rs.container.ConnectionCallback;
+import jakarta.ws.rs.container.TimeoutHandler;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Response;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.Arrays.stream;
+
+class SuspendedResponse implements AsyncResponse {
+    private final Pending<Object> future = new Pending<>(new Callbacks());
+    private final AtomicLong timeouts = new AtomicLong();
+    private volatile TimeoutHandler timeoutHandler;
+    private volatile boolean cancelled;
+
+    CompletionStage<Object> stage() {
+        return future;
+    }
+
+    @Override
+    public boolean resume(Object response) {
+        return future.complete(response);
+    }
+
+    @Override
+    public boolean resume(Throwable response) {
+        return future.completeExceptionally(response);
+    }
+
+    @Override
+    public boolean cancel() {
+        return cancel(Response.status(Response.Status.SERVICE_UNAVAILABLE));
+    }
+
+    @Override
+    public boolean cancel(int retryAfter) {
+        return cancel(Response.status(Response.Status.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, retryAfter));
+    }
+
+    @Override
+    public boolean cancel(Date retryAfter) {
+        return cancel(Response.status(Response.Status.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, retryAfter));
+    }
+
+    private boolean cancel(Response.ResponseBuilder response) {
+        if (future.isDone()) return cancelled;
+        cancelled = future.complete(response.build());
+        return cancelled;
+    }
+
+    @Override
+    public boolean isSuspended() {
+        return !future.isDone();
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    public boolean isDone() {
+        return future.isDone();
+    }
+
+    @Override
+    public boolean setTimeout(long time, TimeUnit unit) {
+        if (future.isDone()) return false;
+        long generation = timeouts.incrementAndGet();
+        if (time > NO_TIMEOUT)
+            CompletableFuture.delayedExecutor(time, unit).execute(() -> {
+                if (generation == timeouts.get() && !future.isDone()) timeout();
+            });
+        return true;
+    }
+
+    @Override
+    public void setTimeoutHandler(TimeoutHandler handler) {
+        this.timeoutHandler = handler;
+    }
+
+    private void timeout() {
+        TimeoutHandler handler = timeoutHandler;
+        if (handler != null) handler.handleTimeout(this);
+        else resume(new StacklessWebApplicationException(Response.Status.SERVICE_UNAVAILABLE));
+    }
+
+    @Override
+    public Collection<Class<?>> register(Class<?> callback) {
+        try {
+            return register(callback.getConstructor().newInstance());
+        } catch (NoSuchMethodException | InstantiationException | IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalArgumentException("can not instantiate callback: " + callback, e);
+        }
+    }
+
+    @Override
+    public Map<Class<?>, Collection<Class<?>>> register(Class<?> callback, Class<?>... callbacks) {
+        Map<Class<?>, Collection<Class<?>>> registered = new LinkedHashMap<>();
+        registered.put(callback, register(callback));
+        stream(callbacks).forEach(c -> registered.put(c, register(c)));
+        return registered;
+    }
+
+    @Override
+    public Collection<Class<?>> register(Object callback) {
+        if (callback instanceof ConnectionCallback)
+            throw new UnsupportedOperationException("connection callbacks are not supported: " + callback.getClass());
+        if (!(callback instanceof CompletionCallback completion))
+            throw new IllegalArgumentException("not a completion callback: " + callback.getClass());
+        future.callbacks.add(completion);
+        return List.of(CompletionCallback.class);
+    }
+
+    @Override
+    public Map<Class<?>, Collection<Class<?>>> register(Object callback, Object... callbacks) {
+        Map<Class<?>, Collection<Class<?>>> registered = new LinkedHashMap<>();
+        registered.put(callback.getClass(), register(callback));
+        stream(callbacks).forEach(c -> registered.put(c.getClass(), register(c)));
+        return registered;
+    }
+
+    static class Pending<T> extends CompletableFuture<T> implements AsyncListener {
+        private final Callbacks callbacks;
+
+        private Pending(Callbacks callbacks) {
+            this.callbacks = callbacks;
+        }
+
+        @Override
+        public <U> CompletableFuture<U> newIncompleteFuture() {
+            return new Pending<>(callbacks);
+        }
+
+        void completed() {
+            Throwable error = handle((value, throwable) -> throwable).getNow(null);
+            while (error instanceof CompletionException && error.getCause() != null) error = error.getCause();
+            callbacks.complete(error instanceof WebApplicationException ? null : error);
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            completed();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            callbacks.complete(event.getThrowable());
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+
+    private static class Callbacks {
+        private final List<CompletionCallback> registered = new ArrayList<>();
+        private boolean completed;
+        private Throwable error;
+
+        void add(CompletionCallback callback) {
+            synchronized (this) {
+                if (!completed) {
+                    registered.add(callback);
+                    return;
+                }
+            }
+            callback.onComplete(error);
+        }
+
+        void complete(Throwable error) {
+            List<CompletionCallback> callbacks;
+            synchronized (this) {
+                if (completed) return;
+                completed = true;
+                this.error = error;
+                callbacks = List.copyOf(registered);
+            }
+            callbacks.forEach(callback -> callback.onComplete(error));
+        }
+    }
+}
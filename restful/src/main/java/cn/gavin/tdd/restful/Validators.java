@@ -0,0 +1,75 @@
+package cn.gavin.tdd.restful;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.ws.rs.core.HttpHeaders;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.Locale;
+
+record Validators(RenderedHeader etag, Instant lastModified) {
+    static final DateTimeFormatter httpDate = DateTimeFormatter.ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US).withZone(ZoneOffset.UTC);
+
+    static Validators of(Object version) {
+        if (version instanceof Instant instant) return new Validators(null, instant.truncatedTo(ChronoUnit.SECONDS));
+        if (version instanceof Date date) return of(date.toInstant());
+        if (version instanceof FileTime time) return of(time.toInstant());
+        return new Validators(RenderedHeader.of("W/\"" + tag(version.toString()) + "\""), null);
+    }
+
+    private static String tag(String version) {
+        StringBuilder tag = new StringBuilder(version.length());
+        for (byte b : version.getBytes(StandardCharsets.UTF_8)) {
+            int c = b & 0xff;
+            if (c > 0x20 && c < 0x7f && c != '"' && c != '%') tag.append((char) c);
+            else tag.append('%').append(Character.forDigit(c >> 4, 16)).append(Character.forDigit(c & 0xf, 16));
+        }
+        return tag.toString();
+    }
+
+    RenderedHeader lastModifiedHeader() {
+        return lastModified == null ? null : RenderedHeader.of(httpDate.format(lastModified));
+    }
+
+    boolean isNotModified(HttpServletRequest request) {
+        return isNotModified(request.getHeader(HttpHeaders.IF_NONE_MATCH), request.getHeader(HttpHeaders.IF_MODIFIED_SINCE));
+    }
+
+    boolean isNotModified(String ifNoneMatch, String ifModifiedSince) {
+        if (ifNoneMatch != null) return etag != null && matches(ifNoneMatch, etag.toString());
+        if (ifModifiedSince == null || lastModified == null) return false;
+        try {
+            return !lastModified.isAfter(Instant.from(DateTimeFormatter.RFC_1123_DATE_TIME.parse(ifModifiedSince.trim())));
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    static boolean isNotModified(HttpServletRequest request, String etag, String lastModified) {
+        Instant modified = null;
+        if (lastModified != null) try {
+            modified = Instant.from(DateTimeFormatter.RFC_1123_DATE_TIME.parse(lastModified.trim()));
+        } catch (DateTimeParseException ignored) {
+        }
+        return new Validators(etag == null ? null : RenderedHeader.of(etag), modified).isNotModified(request);
+    }
+
+    static boolean matches(String ifNoneMatch, String etag) {
+        String opaque = opaque(etag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*") || opaque(tag).equals(opaque)) return true;
+        }
+        return false;
+    }
+
+    private static String opaque(String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+}
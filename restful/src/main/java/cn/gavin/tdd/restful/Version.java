@@ -0,0 +1,17 @@
+package cn.gavin.tdd.restful;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Names a public method of the same resource class that cheaply returns the current version of a GET resource method's
+ * representation. A temporal version becomes {@code Last-Modified}, any other value a weak {@code ETag} shared by every
+ * negotiated representation, and matching conditional requests are answered with 304 without invoking the resource method.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Version {
+    String value();
+}
@@ -0,0 +1,40 @@
+package cn.gavin.tdd.restful;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Creates virtual-thread-per-task executors when running on Java 21 or later, while compiling against Java 17.
+ */
+public final class VirtualThreads {
+    private static final Method factory = factory();
+
+    private VirtualThreads() {
+    }
+
+    public static boolean isSupported() {
+        return factory != null;
+    }
+
+    public static ExecutorService newExecutor() {
+        if (factory == null) throw new UnsupportedOperationException("virtual threads require Java 21 or later");
+        try {
+            return (ExecutorService) factory.invoke(null);
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException(e.getCause());
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Method factory() {
+        if (java.lang.Runtime.version().feature() < 21) return null;
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
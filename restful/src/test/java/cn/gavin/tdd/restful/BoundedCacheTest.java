@@ -0,0 +1,115 @@
+package cn.gavin.tdd.restful;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BoundedCacheTest {
+    @Test
+    public void should_return_cached_value() {
+        BoundedCache<String, String> cache = new BoundedCache<>(2);
+        cache.put("key", "value");
+
+        assertEquals("value", cache.get("key"));
+    }
+
+    @Test
+    public void should_count_hits_and_misses() {
+        BoundedCache<String, String> cache = new BoundedCache<>(2);
+        cache.get("key");
+        cache.put("key", "value");
+        cache.get("key");
+        cache.get("key");
+
+        assertEquals(2, cache.hitCount());
+        assertEquals(1, cache.missCount());
+        assertEquals(2.0 / 3, cache.hitRate(), 0.0001);
+    }
+
+    @Test
+    public void should_not_exceed_maximum_size() {
+        BoundedCache<Integer, Integer> cache = new BoundedCache<>(10);
+        for (int i = 0; i < 100; i++) {
+            cache.get(i);
+            cache.put(i, i);
+        }
+
+        assertTrue(cache.size() <= 10);
+    }
+
+    @Test
+    public void should_keep_frequently_used_entry_over_one_hit_wonders() {
+        BoundedCache<String, String> cache = new BoundedCache<>(2);
+        for (int i = 0; i < 5; i++) cache.get("hot");
+        cache.put("hot", "hot");
+        cache.put("warm", "warm");
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals("hot", cache.get("hot"));
+            cache.get("cold-" + i);
+            cache.put("cold-" + i, "cold");
+        }
+    }
+
+    @Test
+    public void should_remove_invalidated_entries() {
+        BoundedCache<String, String> cache = new BoundedCache<>(2);
+        cache.put("first", "first");
+        cache.put("second", "second");
+
+        cache.invalidate("first");
+        assertNull(cache.get("first"));
+
+        cache.invalidateAll();
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void should_admit_new_entry_into_space_freed_by_invalidation() {
+        BoundedCache<String, String> cache = new BoundedCache<>(2);
+        for (int i = 0; i < 5; i++) {
+            cache.get("first");
+            cache.get("second");
+        }
+        cache.put("first", "first");
+        cache.put("second", "second");
+
+        cache.invalidate("first");
+        cache.put("third", "third");
+
+        assertEquals("second", cache.get("second"));
+        assertEquals("third", cache.get("third"));
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void should_not_lose_sketch_increments_under_concurrent_reads() throws Exception {
+        BoundedCache.FrequencySketch sketch = new BoundedCache.FrequencySketch(4096);
+        ExecutorService readers = Executors.newFixedThreadPool(7);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> done = new ArrayList<>();
+            for (int thread = 0; thread < 7; thread++)
+                done.add(readers.submit(() -> {
+                    start.await();
+                    sketch.increment("hot");
+                    sketch.increment("hot");
+                    return null;
+                }));
+            start.countDown();
+            for (Future<?> future : done) future.get(5, TimeUnit.SECONDS);
+        } finally {
+            readers.shutdown();
+        }
+
+        assertEquals(14, sketch.frequency("hot"));
+    }
+}
@@ -0,0 +1,79 @@
+package cn.gavin.tdd.restful;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BufferPoolTest {
+    @Test
+    public void should_reuse_released_buffer() {
+        BufferPool pool = new BufferPool(16, 4);
+        byte[] buffer = pool.acquire();
+
+        pool.release(buffer);
+
+        assertEquals(1, pool.pooled());
+        assertSame(buffer, pool.acquire());
+        assertEquals(0, pool.pooled());
+    }
+
+    @Test
+    public void should_not_pool_more_than_maximum_buffers() {
+        BufferPool pool = new BufferPool(16, 1);
+
+        pool.release(new byte[16]);
+        pool.release(new byte[16]);
+        pool.release(new byte[32]);
+
+        assertEquals(1, pool.pooled());
+    }
+
+    @Test
+    public void should_write_content_across_pooled_buffers() throws IOException {
+        BufferPool pool = new BufferPool(4, 8);
+        BufferPool.PooledOutputStream content = pool.newOutputStream();
+
+        content.write("hello world".getBytes());
+        content.write('!');
+
+        assertEquals(12, content.size());
+        assertEquals(3, content.buffers());
+        ByteArrayOutputStream written = new ByteArrayOutputStream();
+        for (int i = 0; i < content.buffers(); i++) written.write(content.buffer(i), 0, content.length(i));
+        assertEquals("hello world!", written.toString());
+    }
+
+    @Test
+    public void should_return_buffers_to_pool_when_released() throws IOException {
+        BufferPool pool = new BufferPool(4, 8);
+        BufferPool.PooledOutputStream content = pool.newOutputStream();
+        content.write("hello world".getBytes());
+
+        content.release();
+
+        assertEquals(3, pool.pooled());
+        assertEquals(0, content.size());
+    }
+
+    @Test
+    public void should_spill_to_overflow_when_maximum_buffered_exceeded() throws IOException {
+        BufferPool pool = new BufferPool(4, 8);
+        ByteArrayOutputStream overflow = new ByteArrayOutputStream();
+        BufferPool.PooledOutputStream content = pool.newOutputStream(2, () -> overflow);
+
+        content.write("hello".getBytes());
+        assertFalse(content.isSpilled());
+        content.write(" world".getBytes());
+
+        assertTrue(content.isSpilled());
+        assertEquals("hello wo", overflow.toString());
+        assertEquals(1, pool.pooled());
+
+        content.drain();
+        assertEquals("hello world", overflow.toString());
+        assertEquals(2, pool.pooled());
+    }
+}
@@ -0,0 +1,54 @@
+package cn.gavin.tdd.restful;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ByteRangeTest {
+    @Test
+    public void should_parse_closed_open_and_suffix_ranges() {
+        assertEquals(List.of(new ByteRange(0, 9), new ByteRange(50, 59), new ByteRange(95, 99)),
+                ByteRange.parse("bytes=0-9, 50-59, -5", 100));
+        assertEquals(List.of(new ByteRange(90, 99)), ByteRange.parse("bytes=90-", 100));
+    }
+
+    @Test
+    public void should_coalesce_overlapping_and_adjacent_ranges() {
+        assertEquals(List.of(new ByteRange(0, 19), new ByteRange(30, 39)),
+                ByteRange.parse("bytes=30-39, 10-19, 0-9, 5-12", 100));
+        assertEquals(List.of(new ByteRange(90, 99)), ByteRange.parse("bytes=90-, -5", 100));
+    }
+
+    @Test
+    public void should_clip_range_to_entity_length() {
+        assertEquals(List.of(new ByteRange(50, 99)), ByteRange.parse("bytes=50-1000", 100));
+        assertEquals(List.of(new ByteRange(0, 99)), ByteRange.parse("bytes=-1000", 100));
+    }
+
+    @Test
+    public void should_return_empty_if_no_range_satisfiable() {
+        assertEquals(List.of(), ByteRange.parse("bytes=100-", 100));
+        assertEquals(List.of(), ByteRange.parse("bytes=-0", 100));
+    }
+
+    @Test
+    public void should_ignore_missing_or_malformed_ranges() {
+        assertNull(ByteRange.parse(null, 100));
+        assertNull(ByteRange.parse("items=0-1", 100));
+        assertNull(ByteRange.parse("bytes=5-1", 100));
+        assertNull(ByteRange.parse("bytes=a-b", 100));
+    }
+
+    @Test
+    public void should_ignore_too_many_ranges() {
+        assertNull(ByteRange.parse("bytes=" + "0-0,".repeat(17), 100));
+    }
+
+    @Test
+    public void should_format_content_range() {
+        assertEquals("bytes 2-5/10", new ByteRange(2, 5).contentRange(10));
+        assertEquals(4, new ByteRange(2, 5).length());
+    }
+}
@@ -0,0 +1,89 @@
+package cn.gavin.tdd.restful;
+
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.ext.ExceptionMapper;
+import jakarta.ws.rs.ext.MessageBodyReader;
+import jakarta.ws.rs.ext.MessageBodyWriter;
+import jakarta.ws.rs.ext.Providers;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.annotation.Annotation;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class CachedProvidersTest {
+    private Providers providers;
+    private CachedProviders cached;
+    private MessageBodyWriter<String> writer;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void before() {
+        providers = mock(Providers.class);
+        writer = mock(MessageBodyWriter.class);
+        when(providers.getMessageBodyWriter(eq(String.class), eq(String.class), any(), eq(MediaType.TEXT_PLAIN_TYPE))).thenReturn(writer);
+        cached = new CachedProviders(providers);
+    }
+
+    @Test
+    public void should_lookup_message_body_writer_once_for_same_key() {
+        assertSame(writer, cached.getMessageBodyWriter(String.class, String.class, new Annotation[0], MediaType.TEXT_PLAIN_TYPE));
+        assertSame(writer, cached.getMessageBodyWriter(String.class, String.class, new Annotation[0], MediaType.TEXT_PLAIN_TYPE));
+
+        verify(providers, times(1)).getMessageBodyWriter(eq(String.class), eq(String.class), any(), eq(MediaType.TEXT_PLAIN_TYPE));
+        assertEquals(0.5, cached.hitRate());
+    }
+
+    @Test
+    public void should_distinguish_writers_by_media_type() {
+        assertSame(writer, cached.getMessageBodyWriter(String.class, String.class, new Annotation[0], MediaType.TEXT_PLAIN_TYPE));
+        assertNull(cached.getMessageBodyWriter(String.class, String.class, new Annotation[0], MediaType.APPLICATION_JSON_TYPE));
+    }
+
+    @Test
+    public void should_cache_missing_message_body_writer() {
+        assertNull(cached.getMessageBodyWriter(Integer.class, Integer.class, new Annotation[0], MediaType.TEXT_PLAIN_TYPE));
+        assertNull(cached.getMessageBodyWriter(Integer.class, Integer.class, new Annotation[0], MediaType.TEXT_PLAIN_TYPE));
+
+        verify(providers, times(1)).getMessageBodyWriter(eq(Integer.class), eq(Integer.class), any(), eq(MediaType.TEXT_PLAIN_TYPE));
+    }
+
+    @Test
+    public void should_lookup_again_after_invalidated() {
+        cached.getMessageBodyWriter(String.class, String.class, new Annotation[0], MediaType.TEXT_PLAIN_TYPE);
+        cached.invalidateAll();
+        cached.getMessageBodyWriter(String.class, String.class, new Annotation[0], MediaType.TEXT_PLAIN_TYPE);
+
+        verify(providers, times(2)).getMessageBodyWriter(eq(String.class), eq(String.class), any(), eq(MediaType.TEXT_PLAIN_TYPE));
+    }
+
+    @Test
+    public void should_lookup_exception_mapper_once_for_same_exception_class() {
+        ExceptionMapper<IllegalStateException> mapper = e -> null;
+        when(providers.getExceptionMapper(eq(IllegalStateException.class))).thenReturn(mapper);
+
+        assertSame(mapper, cached.getExceptionMapper(IllegalStateException.class));
+        assertSame(mapper, cached.getExceptionMapper(IllegalStateException.class));
+        assertNull(cached.getExceptionMapper(IllegalArgumentException.class));
+        assertNull(cached.getExceptionMapper(IllegalArgumentException.class));
+
+        verify(providers, times(1)).getExceptionMapper(eq(IllegalStateException.class));
+        verify(providers, times(1)).getExceptionMapper(eq(IllegalArgumentException.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void should_lookup_message_body_reader_once_for_same_key() {
+        MessageBodyReader<String> reader = mock(MessageBodyReader.class);
+        when(providers.getMessageBodyReader(eq(String.class), eq(String.class), any(), eq(MediaType.TEXT_PLAIN_TYPE))).thenReturn(reader);
+
+        assertSame(reader, cached.getMessageBodyReader(String.class, String.class, new Annotation[0], MediaType.TEXT_PLAIN_TYPE));
+        assertSame(reader, cached.getMessageBodyReader(String.class, String.class, new Annotation[0], MediaType.TEXT_PLAIN_TYPE));
+
+        verify(providers, times(1)).getMessageBodyReader(eq(String.class), eq(String.class), any(), eq(MediaType.TEXT_PLAIN_TYPE));
+    }
+}
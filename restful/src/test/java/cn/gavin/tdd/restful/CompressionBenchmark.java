@@ -0,0 +1,52 @@
+package cn.gavin.tdd.restful;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public class CompressionBenchmark {
+    private static final int warmup = 200;
+    private static final int iterations = 1000;
+
+    public static void main(String[] args) throws IOException {
+        byte[] payload = IntStream.range(0, 1000)
+                .mapToObj(i -> "{\"id\":" + i + ",\"name\":\"user-" + i + "\",\"email\":\"user" + i + "@example.com\",\"active\":" + (i % 3 == 0) + "}")
+                .collect(Collectors.joining(",", "[", "]")).getBytes(StandardCharsets.UTF_8);
+        System.out.printf("payload %d bytes%n%-6s %-8s %12s %10s %12s%n", payload.length, "level", "encoding", "compressed", "ratio", "cpu us/op");
+        for (int level : new int[]{1, 3, 6, 9})
+            for (String encoding : new String[]{"gzip", "deflate"}) {
+                Compression compression = new Compression(level, 0, Set.of("application/json"));
+                Counting counting = new Counting();
+                for (int i = 0; i < warmup; i++) compress(compression, encoding, payload, counting);
+                counting.count = 0;
+                long start = System.nanoTime();
+                for (int i = 0; i < iterations; i++) compress(compression, encoding, payload, counting);
+                long elapsed = System.nanoTime() - start;
+                long compressed = counting.count / iterations;
+                System.out.printf("%-6d %-8s %12d %9.1fx %12.1f%n", level, encoding, compressed, (double) payload.length / compressed, elapsed / 1000.0 / iterations);
+            }
+    }
+
+    private static void compress(Compression compression, String encoding, byte[] payload, OutputStream target) throws IOException {
+        try (OutputStream stream = compression.compress(target, encoding)) {
+            stream.write(payload);
+        }
+    }
+
+    static class Counting extends OutputStream {
+        long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {
+            count += length;
+        }
+    }
+}
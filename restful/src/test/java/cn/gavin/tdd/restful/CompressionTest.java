@@ -0,0 +1,93 @@
+package cn.gavin.tdd.restful;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.Set;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompressionTest {
+    private final Compression compression = new Compression(Deflater.DEFAULT_COMPRESSION, 1024, Compression.defaultMediaTypes);
+
+    @Test
+    public void should_negotiate_encoding_by_quality() {
+        assertEquals("gzip", compression.negotiate("gzip, deflate"));
+        assertEquals("deflate", compression.negotiate("gzip;q=0.1, deflate;q=0.9"));
+        assertEquals("gzip", compression.negotiate("*"));
+        assertNull(compression.negotiate("gzip;q=0"));
+        assertNull(compression.negotiate("br, identity"));
+        assertNull(compression.negotiate(null));
+    }
+
+    @Test
+    public void should_resolve_wildcard_only_to_codings_not_listed() {
+        assertEquals("deflate", compression.negotiate("gzip;q=0, *"));
+        assertNull(compression.negotiate("gzip;q=0, deflate;q=0, *"));
+        assertNull(compression.negotiate("*;q=0"));
+        assertEquals("gzip", compression.negotiate("deflate;q=0.5, *"));
+    }
+
+    @Test
+    public void should_return_deflater_to_pool_if_spilled_write_fails() {
+        BufferPool buffers = new BufferPool(8192, 4);
+        OutputStream broken = new OutputStream() {
+            private int written;
+
+            @Override
+            public void write(int b) throws IOException {
+                if (++written > 10) throw new IOException("connection reset");
+            }
+        };
+        BufferPool.PooledOutputStream content = buffers.newOutputStream(1, () -> compression.compress(broken, "gzip"));
+        byte[] noise = new byte[64 * 1024];
+        new Random(1).nextBytes(noise);
+
+        assertThrows(IOException.class, () -> content.write(noise));
+        content.release();
+
+        assertEquals(1, compression.pooled());
+    }
+
+    @Test
+    public void should_allow_compressible_media_types() {
+        assertTrue(compression.isCompressible("text/html; charset=UTF-8"));
+        assertTrue(compression.isCompressible("application/json"));
+        assertTrue(compression.isCompressible("application/problem+json"));
+        assertFalse(compression.isCompressible("image/png"));
+        assertFalse(compression.isCompressible(null));
+    }
+
+    @Test
+    public void should_use_custom_media_types() {
+        Compression compression = new Compression(Deflater.BEST_SPEED, 0, Set.of("application/octet-stream"));
+
+        assertTrue(compression.isCompressible("application/octet-stream"));
+        assertFalse(compression.isCompressible("text/plain"));
+    }
+
+    @Test
+    public void should_write_gzip_stream_and_pool_deflater() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream stream = compression.compress(bytes, "gzip")) {
+            stream.write("hello ".repeat(100).getBytes());
+        }
+
+        assertEquals("hello ".repeat(100), new String(new GZIPInputStream(new ByteArrayInputStream(bytes.toByteArray())).readAllBytes()));
+        assertEquals(1, compression.pooled());
+
+        compression.compress(new ByteArrayOutputStream(), "gzip").close();
+        assertEquals(1, compression.pooled());
+    }
+
+    @Test
+    public void should_reject_invalid_level() {
+        assertThrows(IllegalArgumentException.class, () -> new Compression(10, 0, Compression.defaultMediaTypes));
+    }
+}
@@ -3,30 +3,86 @@ package cn.gavin.tdd.restful;
 import org.junit.jupiter.api.Test;
 
 import java.math.BigDecimal;
-import java.util.Optional;
+import java.util.List;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.*;
 
 class ConverterTest {
 
     @Test
     public void should_convert_via_converter_constructor() {
-        assertEquals(Optional.of(new BigDecimal("12345")), ConverterConstructor.convert(BigDecimal.class, "12345"));
+        assertEquals(new BigDecimal("12345"), convert(BigDecimal.class, "12345"));
     }
 
     @Test
     public void should_not_convert_if_no_converter_constructor() {
-        assertEquals(Optional.empty(), ConverterConstructor.convert(NoConverter.class, "12345"));
+        assertTrue(ConverterConstructor.converter(NoConverter.class).isEmpty());
     }
 
     @Test
     public void should_convert_via_converter_factory() {
-        assertEquals(Optional.of(Converter.Factory), ConverterFactory.convert(Converter.class, "Factory"));
+        assertEquals(Converter.Factory, ConverterFactory.converter(Converter.class).get().apply("Factory"));
     }
 
     @Test
     public void should_not_convert_if_no_converter_factory() {
-        assertEquals(Optional.empty(), ConverterFactory.convert(NoConverter.class, "Factory"));
+        assertTrue(ConverterFactory.converter(NoConverter.class).isEmpty());
+    }
+
+    @Test
+    public void should_convert_long_char_and_boxed_types() {
+        assertEquals(12345678901L, convert(long.class, "12345678901"));
+        assertEquals('c', convert(char.class, "c"));
+        assertEquals(42, convert(Integer.class, "42"));
+        assertEquals(true, convert(Boolean.class, "true"));
+    }
+
+    @Test
+    public void should_convert_enum() {
+        assertEquals(Converter.Primitive, convert(Converter.class, "Primitive"));
+    }
+
+    @Test
+    public void should_convert_collection_of_convertable_types() throws NoSuchMethodException {
+        assertEquals(List.of(1, 2), convert(type("list"), List.of("1", "2")));
+        assertEquals(Set.of(Converter.Factory), convert(type("set"), List.of("Factory", "Factory")));
+        assertEquals(new TreeSet<>(List.of(new BigDecimal("1"), new BigDecimal("2"))), convert(type("sortedSet"), List.of("2", "1")));
+    }
+
+    @Test
+    public void should_not_convert_if_no_converter_found() {
+        assertTrue(Converters.converter(NoConverter.class).isEmpty());
+    }
+
+    @Test
+    public void should_use_default_value_if_value_absent() throws NoSuchMethodException {
+        assertEquals(0, Converters.absent(int.class));
+        assertEquals(false, Converters.absent(boolean.class));
+        assertNull(Converters.absent(Integer.class));
+        assertEquals(List.of(), Converters.absent(type("list")));
+    }
+
+    private static Object convert(java.lang.reflect.Type type, String value) {
+        return convert(type, List.of(value));
+    }
+
+    private static Object convert(java.lang.reflect.Type type, List<String> values) {
+        return Converters.converter(type).get().fromString(values);
+    }
+
+    private static java.lang.reflect.Type type(String method) throws NoSuchMethodException {
+        return Collections.class.getMethod(method).getGenericReturnType();
+    }
+
+    interface Collections {
+        List<Integer> list();
+
+        Set<Converter> set();
+
+        SortedSet<BigDecimal> sortedSet();
     }
 }
 
@@ -34,4 +90,4 @@ class NoConverter {
     NoConverter valueOf(String value){
         return new NoConverter();
     }
-}
\ No newline at end of file
+}
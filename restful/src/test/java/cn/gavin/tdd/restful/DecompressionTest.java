@@ -0,0 +1,142 @@
+package cn.gavin.tdd.restful;
+
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.ext.RuntimeDelegate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+public class DecompressionTest {
+    private final Decompression decompression = new Decompression(1024);
+
+    @BeforeEach
+    public void before() {
+        RuntimeDelegate delegate = Mockito.mock(RuntimeDelegate.class);
+        RuntimeDelegate.setInstance(delegate);
+        when(delegate.createResponseBuilder()).thenAnswer(invocation -> new StudResponseBuilder());
+    }
+
+    @Test
+    public void should_not_decode_request_without_content_encoding() {
+        HttpServletRequest request = request(null, new byte[0]);
+        HttpServletRequest identity = request("identity", new byte[0]);
+
+        assertSame(request, decompression.decode(request));
+        assertSame(identity, decompression.decode(identity));
+    }
+
+    @Test
+    public void should_decompress_gzip_entity_and_hide_encoding_headers() throws IOException {
+        HttpServletRequest request = decompression.decode(request("gzip", gzip("hello ".repeat(50))));
+
+        assertEquals("hello ".repeat(50), new String(request.getInputStream().readAllBytes()));
+        assertNull(request.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertNull(request.getHeader(HttpHeaders.CONTENT_LENGTH));
+        assertEquals(-1, request.getContentLengthLong());
+        assertEquals(List.of("Content-Type"), Collections.list(request.getHeaderNames()));
+        assertTrue(request.getInputStream().isFinished());
+        assertEquals(1, decompression.pooled());
+    }
+
+    @Test
+    public void should_decompress_deflate_entity() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DeflaterOutputStream stream = new DeflaterOutputStream(bytes)) {
+            stream.write("deflated".getBytes());
+        }
+
+        HttpServletRequest request = decompression.decode(request("deflate", bytes.toByteArray()));
+
+        assertEquals("deflated", new String(request.getInputStream().readAllBytes()));
+    }
+
+    @Test
+    public void should_reject_entity_larger_than_maximum_length() throws IOException {
+        InputStream stream = decompression.decode(request("gzip", gzip("0".repeat(10_000)))).getInputStream();
+
+        WebApplicationException exception = assertThrows(WebApplicationException.class, stream::readAllBytes);
+        assertEquals(Response.Status.REQUEST_ENTITY_TOO_LARGE.getStatusCode(), exception.getResponse().getStatus());
+        assertEquals(1, decompression.pooled());
+    }
+
+    @Test
+    public void should_reject_malformed_entity() throws IOException {
+        byte[] corrupted = gzip("hello ".repeat(50));
+        corrupted[corrupted.length - 5] ^= 1;
+        InputStream stream = decompression.decode(request("gzip", corrupted)).getInputStream();
+
+        WebApplicationException exception = assertThrows(WebApplicationException.class, stream::readAllBytes);
+        assertEquals(Response.Status.BAD_REQUEST.getStatusCode(), exception.getResponse().getStatus());
+    }
+
+    @Test
+    public void should_reject_unsupported_encoding() {
+        HttpServletRequest request = decompression.decode(request("br", new byte[0]));
+
+        WebApplicationException exception = assertThrows(WebApplicationException.class, request::getInputStream);
+        assertEquals(Response.Status.UNSUPPORTED_MEDIA_TYPE.getStatusCode(), exception.getResponse().getStatus());
+    }
+
+    private static byte[] gzip(String entity) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream stream = new GZIPOutputStream(bytes)) {
+            stream.write(entity.getBytes());
+        }
+        return bytes.toByteArray();
+    }
+
+    private static HttpServletRequest request(String encoding, byte[] body) {
+        HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
+        when(request.getHeader(eq(HttpHeaders.CONTENT_ENCODING))).thenReturn(encoding);
+        when(request.getHeaderNames()).thenAnswer(invocation -> Collections.enumeration(List.of("Content-Encoding", "Content-Type", "Content-Length")));
+        try {
+            ByteArrayInputStream input = new ByteArrayInputStream(body);
+            when(request.getInputStream()).thenReturn(new ServletInputStream() {
+                @Override
+                public int read() {
+                    return input.read();
+                }
+
+                @Override
+                public int read(byte[] bytes, int offset, int length) {
+                    return input.read(bytes, offset, length);
+                }
+
+                @Override
+                public boolean isFinished() {
+                    return input.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener listener) {
+                }
+            });
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return request;
+    }
+}
@@ -27,6 +27,8 @@ public class DefaultResourceMethodTest extends InjectableCallerTest {
 
                     if (method.getName().equals("throwWebApplicationException"))
                         throw new WebApplicationException(300);
+                    if (method.getName().equals("throwIllegalStateException"))
+                        throw new IllegalStateException();
                     return "getList".equals(method.getName()) ? new ArrayList<String>() : null;
                 });
     }
@@ -65,6 +67,19 @@ public class DefaultResourceMethodTest extends InjectableCallerTest {
         }
     }
 
+    @Test
+    public void should_not_wrap_around_other_runtime_exception() throws NoSuchMethodException {
+        DefaultResourceMethod resourceMethod = getResourceMethod("throwIllegalStateException");
+
+        assertThrows(IllegalStateException.class, () -> resourceMethod.call(context, builder));
+    }
+
+    @Test
+    public void should_share_method_invoker_for_same_method() throws NoSuchMethodException {
+        assertSame(MethodInvoker.of(CallableResourceMethods.class.getMethod("getPathParam", String.class)),
+                MethodInvoker.of(CallableResourceMethods.class.getMethod("getPathParam", String.class)));
+    }
+
     private DefaultResourceMethod getResourceMethod(String method, Class... types) throws NoSuchMethodException {
         return new DefaultResourceMethod(CallableResourceMethods.class.getMethod(method, types));
     }
@@ -154,6 +169,9 @@ public class DefaultResourceMethodTest extends InjectableCallerTest {
 
         @GET
         String throwWebApplicationException(@PathParam("param") String path);
+
+        @GET
+        String throwIllegalStateException();
     }
 }
 
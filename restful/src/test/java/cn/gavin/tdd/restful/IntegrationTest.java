@@ -5,7 +5,10 @@ import jakarta.ws.rs.GET;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.PathParam;
 import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.container.AsyncResponse;
+import jakarta.ws.rs.container.CompletionCallback;
 import jakarta.ws.rs.container.ResourceContext;
+import jakarta.ws.rs.container.Suspended;
 import jakarta.ws.rs.core.*;
 import jakarta.ws.rs.ext.ExceptionMapper;
 import jakarta.ws.rs.ext.MessageBodyWriter;
@@ -23,6 +26,15 @@ import java.lang.reflect.Type;
 import java.net.http.HttpResponse;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
@@ -36,6 +48,8 @@ public class IntegrationTest extends ServletTest {
     private Providers providers;
     private RuntimeDelegate delegate;
     private UriInfo uriInfo;
+    private ResourceServlet servlet;
+    private SingleFlight flights;
 
     @Override
     protected Servlet getServlet() {
@@ -51,7 +65,9 @@ public class IntegrationTest extends ServletTest {
         when(runtime.getProviders()).thenReturn(providers);
         when(resourceContext.getResource(eq(UsersApi.class))).thenReturn(new UsersApi());
 
-        return new ResourceServlet(runtime);
+        servlet = new ResourceServlet(runtime);
+        servlet.setSingleFlight(flights = new SingleFlight());
+        return servlet;
     }
 
     @BeforeEach
@@ -112,6 +128,128 @@ public class IntegrationTest extends ServletTest {
         assertEquals(200, response.statusCode());
         assertEquals(new User("john-smith", new UserData("John Smith", "john.smith@email.com")).toString(), response.body());
     }
+
+    @Test
+    public void should_respond_when_completion_stage_completed() {
+        HttpResponse<String> response = get("/users/count");
+        assertEquals(200, response.statusCode());
+        assertEquals("1", response.body());
+    }
+
+    @Test
+    public void should_use_version_as_etag() {
+        HttpResponse<String> response = get("/users/ids");
+        assertEquals(200, response.statusCode());
+        assertEquals("john-smith", response.body());
+        assertEquals("W/\"v1\"", response.headers().firstValue(HttpHeaders.ETAG).get());
+    }
+
+    @Test
+    public void should_not_invoke_resource_method_if_version_not_modified() {
+        int listed = UsersApi.listed.get();
+
+        HttpResponse<String> response = get("/users/ids", HttpHeaders.IF_NONE_MATCH, "\"v0\", \"v1\"");
+
+        assertEquals(304, response.statusCode());
+        assertEquals("", response.body());
+        assertEquals("W/\"v1\"", response.headers().firstValue(HttpHeaders.ETAG).get());
+        assertEquals(listed, UsersApi.listed.get());
+    }
+
+    @Test
+    public void should_serve_cached_response_without_invoking_resource_method() {
+        int named = UsersApi.named.get();
+
+        assertEquals("John Smith", get("/users/names").body());
+        HttpResponse<String> response = get("/users/names");
+
+        assertEquals(200, response.statusCode());
+        assertEquals("John Smith", response.body());
+        assertEquals(named + 1, UsersApi.named.get());
+        assertEquals(0.5, servlet.responsesHitRate());
+    }
+
+    @Test
+    public void should_invoke_resource_method_again_after_cached_responses_invalidated() {
+        int named = UsersApi.named.get();
+        get("/users/names");
+
+        servlet.invalidateResponses(UsersApi.class);
+        HttpResponse<String> response = get("/users/names");
+
+        assertEquals("John Smith", response.body());
+        assertEquals(named + 2, UsersApi.named.get());
+    }
+
+    @Test
+    public void should_respond_not_modified_from_cached_response() {
+        String etag = get("/users/names").headers().firstValue(HttpHeaders.ETAG).get();
+
+        HttpResponse<String> response = get("/users/names", HttpHeaders.IF_NONE_MATCH, etag);
+
+        assertEquals(304, response.statusCode());
+        assertEquals(etag, response.headers().firstValue(HttpHeaders.ETAG).get());
+    }
+
+    @Test
+    public void should_coalesce_concurrent_first_requests_to_unseen_path() throws Exception {
+        int counted = UsersApi.counted.get();
+        UsersApi.gate = new CountDownLatch(1);
+        ExecutorService clients = Executors.newFixedThreadPool(4);
+        try {
+            List<CompletableFuture<HttpResponse<String>>> responses = IntStream.range(0, 4)
+                    .mapToObj(i -> CompletableFuture.supplyAsync(() -> get("/users/totals/42"), clients)).toList();
+            for (long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5); flights.waiting() < 3 && System.nanoTime() < deadline; )
+                Thread.sleep(10);
+            UsersApi.gate.countDown();
+
+            for (CompletableFuture<HttpResponse<String>> response : responses) assertEquals("1", response.get(5, TimeUnit.SECONDS).body());
+            assertEquals(counted + 1, UsersApi.counted.get());
+            assertEquals(3, servlet.coalescedInvocations());
+        } finally {
+            UsersApi.gate.countDown();
+            clients.shutdown();
+        }
+    }
+
+    @Test
+    public void should_share_in_flight_response_with_identical_concurrent_requests() throws Exception {
+        get("/users/total");
+        int counted = UsersApi.counted.get();
+        UsersApi.gate = new CountDownLatch(1);
+        ExecutorService clients = Executors.newFixedThreadPool(4);
+        try {
+            List<CompletableFuture<HttpResponse<String>>> responses = IntStream.range(0, 4)
+                    .mapToObj(i -> CompletableFuture.supplyAsync(() -> get("/users/total"), clients)).toList();
+            for (long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5); flights.waiting() < 3 && System.nanoTime() < deadline; )
+                Thread.sleep(10);
+            UsersApi.gate.countDown();
+
+            for (CompletableFuture<HttpResponse<String>> response : responses) assertEquals("1", response.get(5, TimeUnit.SECONDS).body());
+            assertEquals(counted + 1, UsersApi.counted.get());
+            assertEquals(3, servlet.coalescedInvocations());
+        } finally {
+            UsersApi.gate.countDown();
+            clients.shutdown();
+        }
+    }
+
+    @Test
+    public void should_respond_when_suspended_response_resumed() {
+        HttpResponse<String> response = get("/users/first");
+        assertEquals(200, response.statusCode());
+        assertEquals("john-smith", response.body());
+    }
+
+    @Test
+    public void should_notify_completion_callback_once_response_written() throws Exception {
+        int completed = UsersApi.completed.get();
+
+        get("/users/first");
+
+        for (int i = 0; i < 50 && UsersApi.completed.get() == completed; i++) Thread.sleep(10);
+        assertEquals(completed + 1, UsersApi.completed.get());
+    }
 }
 
 record UserData(String name, String email) {
@@ -153,6 +291,11 @@ class User {
 
 @Path("/users")
 class UsersApi {
+    static final AtomicInteger listed = new AtomicInteger();
+    static final AtomicInteger named = new AtomicInteger();
+    static final AtomicInteger counted = new AtomicInteger();
+    static final AtomicInteger completed = new AtomicInteger();
+    static volatile CountDownLatch gate = new CountDownLatch(0);
 
     private List<User> users;
 
@@ -160,10 +303,65 @@ class UsersApi {
         this.users = List.of(new User("john-smith", new UserData("John Smith", "john.smith@email.com")));
     }
 
+    @GET
+    @Path("/count")
+    public CompletionStage<String> count() {
+        return CompletableFuture.supplyAsync(() -> String.valueOf(users.size()));
+    }
+
+    @GET
+    @Path("/first")
+    public void first(@Suspended AsyncResponse response) {
+        response.register((CompletionCallback) error -> {
+            if (error == null) completed.incrementAndGet();
+        });
+        CompletableFuture.runAsync(() -> response.resume(users.get(0).getId()));
+    }
+
+    @GET
+    @Path("/ids")
+    @Version("version")
+    public String ids() {
+        listed.incrementAndGet();
+        return users.stream().map(User::getId).collect(Collectors.joining(","));
+    }
+
+    @GET
+    @Path("/names")
+    @Cached(ttl = 60)
+    public String names() {
+        named.incrementAndGet();
+        return users.stream().map(user -> user.getData().name()).collect(Collectors.joining(","));
+    }
+
+    @GET
+    @Path("/total")
+    @Coalesced
+    public String total() {
+        counted.incrementAndGet();
+        try {
+            if (!gate.await(5, TimeUnit.SECONDS)) throw new IllegalStateException("gate not opened");
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+        return String.valueOf(users.size());
+    }
+
+    @GET
+    @Path("/totals/{id}")
+    @Coalesced
+    public String totalOf() {
+        return total();
+    }
+
+    public String version() {
+        return "v" + users.size();
+    }
+
     @Path("/{id}")
     public UserApi findUserById(@PathParam("id") String id) {
         return users.stream().filter(user -> user.getId().equals(id)).findFirst()
-                .map(UserApi::new).orElseThrow(() -> new WebApplicationException(404));
+                .map(UserApi::new).orElseThrow(() -> new StacklessWebApplicationException(Response.Status.NOT_FOUND));
     }
 }
 
@@ -0,0 +1,251 @@
+package cn.gavin.tdd.restful;
+
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.core.GenericType;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.MultivaluedHashMap;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JsonProviderTest {
+    private final JsonProvider provider = new JsonProvider();
+
+    @Test
+    public void should_only_handle_json_media_types() {
+        assertTrue(provider.isWriteable(Object.class, Object.class, new Annotation[0], MediaType.APPLICATION_JSON_TYPE));
+        assertTrue(provider.isReadable(Object.class, Object.class, new Annotation[0], new MediaType("application", "problem+json")));
+        assertFalse(provider.isWriteable(Object.class, Object.class, new Annotation[0], MediaType.TEXT_PLAIN_TYPE));
+        assertFalse(provider.isReadable(Object.class, Object.class, new Annotation[0], null));
+    }
+
+    @Test
+    public void should_write_record_components_in_declaration_order() throws Exception {
+        Map<String, Integer> tags = new LinkedHashMap<>();
+        tags.put("a", 1);
+        tags.put("b", null);
+        Order order = new Order("o-1", List.of(new Line("apple", 2.5)), tags, Status.SHIPPED, Optional.empty(), 3);
+
+        assertEquals("{\"id\":\"o-1\",\"lines\":[{\"name\":\"apple\",\"price\":2.5}],\"tags\":{\"a\":1,\"b\":null},"
+                + "\"status\":\"SHIPPED\",\"note\":null,\"quantity\":3}", write(order));
+    }
+
+    @Test
+    public void should_write_bean_properties_from_getters() throws Exception {
+        User user = new User("john-smith", new UserData("John Smith", "john.smith@email.com"));
+
+        assertEquals("{\"data\":{\"name\":\"John Smith\",\"email\":\"john.smith@email.com\"},\"id\":\"john-smith\"}", write(user));
+    }
+
+    @Test
+    public void should_write_collections_arrays_and_streams_as_arrays() throws Exception {
+        assertEquals("[1,2]", write(List.of(1, 2)));
+        assertEquals("[true]", write(Set.of(true)));
+        assertEquals("[-9223372036854775808,0]", write(new long[]{Long.MIN_VALUE, 0}));
+        assertEquals("[\"x\",null]", write(Stream.of("x", null)));
+    }
+
+    @Test
+    public void should_write_non_finite_numbers_as_null() throws Exception {
+        assertEquals("[null,null,1.5]", write(List.of(Double.NaN, Float.POSITIVE_INFINITY, 1.5)));
+    }
+
+    @Test
+    public void should_escape_strings_and_encode_utf8() throws Exception {
+        String text = "quote\" slash\\ tab\t nul\u0000 é 中 😀";
+
+        String written = write(text);
+
+        assertEquals("\"quote\\\" slash\\\\ tab\\t nul\\u0000 é 中 😀\"", written);
+        assertEquals(text, read(String.class, String.class, written));
+    }
+
+    @Test
+    public void should_write_string_longer_than_buffer() throws Exception {
+        String text = "é".repeat(10000);
+
+        assertEquals(text, read(String.class, String.class, write(text)));
+    }
+
+    @Test
+    public void should_leave_flushing_to_caller() throws Exception {
+        int[] flushes = new int[1];
+        ByteArrayOutputStream stream = new ByteArrayOutputStream() {
+            @Override
+            public void flush() {
+                flushes[0]++;
+            }
+        };
+
+        provider.writeTo(List.of(1, 2), List.class, List.class, new Annotation[0], MediaType.APPLICATION_JSON_TYPE, new MultivaluedHashMap<>(), stream);
+
+        assertEquals("[1,2]", stream.toString(StandardCharsets.UTF_8));
+        assertEquals(0, flushes[0]);
+    }
+
+    @Test
+    public void should_refuse_to_write_nesting_deeper_than_limit() {
+        Node node = new Node();
+        node.next = node;
+
+        assertThrows(IllegalStateException.class, () -> write(node));
+    }
+
+    @Test
+    public void should_read_record_with_generic_components() throws Exception {
+        Order order = read(Order.class, Order.class, """
+                {"id": "o-1", "lines": [{"name": "apple", "price": 2.5}], "tags": {"a": 1},
+                 "status": "PENDING", "note": "fragile", "quantity": 3, "unknown": {"nested": [1, "2"]}}
+                """);
+
+        assertEquals(new Order("o-1", List.of(new Line("apple", 2.5)), Map.of("a", 1), Status.PENDING, Optional.of("fragile"), 3), order);
+    }
+
+    @Test
+    public void should_use_absent_values_for_missing_record_components() throws Exception {
+        Order order = read(Order.class, Order.class, "{\"id\":\"o-2\"}");
+
+        assertEquals(new Order("o-2", List.of(), null, null, null, 0), order);
+    }
+
+    @Test
+    public void should_read_bean_through_setters() throws Exception {
+        Account account = read(Account.class, Account.class, "{\"name\":\"john\",\"active\":true,\"roles\":[\"admin\"]}");
+
+        assertEquals("john", account.getName());
+        assertTrue(account.isActive());
+        assertEquals(List.of("admin"), account.getRoles());
+    }
+
+    @Test
+    public void should_read_parameterized_collection_of_records() throws Exception {
+        Type type = new GenericType<List<Line>>() {
+        }.getType();
+
+        List<Line> lines = read(List.class, type, "[{\"name\":\"a\",\"price\":1},{\"name\":\"b\",\"price\":2}]");
+
+        assertEquals(List.of(new Line("a", 1), new Line("b", 2)), lines);
+    }
+
+    @Test
+    public void should_read_untyped_values_as_maps_lists_and_scalars() throws Exception {
+        Object value = read(Object.class, Object.class, "{\"a\":[1,2.5,\"x\",true,null],\"b\":123456789012345678901234567890}");
+
+        assertEquals(Map.of("a", Arrays.asList(1L, 2.5, "x", true, null), "b", new BigInteger("123456789012345678901234567890")), value);
+    }
+
+    @Test
+    public void should_read_incrementally_from_stream() throws Exception {
+        byte[] json = "{\"name\":\"中文\",\"price\":3}".getBytes(StandardCharsets.UTF_8);
+        InputStream trickle = new InputStream() {
+            private int position;
+
+            @Override
+            public int read() {
+                return position < json.length ? json[position++] & 0xff : -1;
+            }
+
+            @Override
+            public int read(byte[] bytes, int offset, int length) {
+                if (position == json.length) return -1;
+                bytes[offset] = json[position++];
+                return 1;
+            }
+        };
+
+        Object line = provider.readFrom(cast(Line.class), Line.class, new Annotation[0], MediaType.APPLICATION_JSON_TYPE, new MultivaluedHashMap<>(), trickle);
+
+        assertEquals(new Line("中文", 3), line);
+    }
+
+    @Test
+    public void should_reject_malformed_json_as_bad_request() {
+        assertBadRequest(Line.class, "{\"name\":\"a\"");
+        assertBadRequest(Line.class, "{\"name\":\"a\"} trailing");
+        assertBadRequest(Line.class, "{\"name\":\"a\",\"price\":\"cheap\"}");
+        assertBadRequest(Order.class, "{\"status\":\"LOST\"}");
+        assertBadRequest(Object.class, "[".repeat(1000) + "]".repeat(1000));
+    }
+
+    private void assertBadRequest(Class<?> type, String json) {
+        WebApplicationException exception = assertThrows(WebApplicationException.class, () -> read(type, type, json));
+        assertEquals(400, exception.getResponse().getStatus());
+    }
+
+    private String write(Object value) throws IOException {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        provider.writeTo(value, value.getClass(), value.getClass(), new Annotation[0], MediaType.APPLICATION_JSON_TYPE, new MultivaluedHashMap<>(), stream);
+        return stream.toString(StandardCharsets.UTF_8);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T read(Class<?> type, Type genericType, String json) throws IOException {
+        return (T) provider.readFrom(cast(type), genericType, new Annotation[0], MediaType.APPLICATION_JSON_TYPE, new MultivaluedHashMap<>(),
+                new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Class<Object> cast(Class<?> type) {
+        return (Class<Object>) type;
+    }
+
+    enum Status {
+        PENDING, SHIPPED
+    }
+
+    record Line(String name, double price) {
+    }
+
+    record Order(String id, List<Line> lines, Map<String, Integer> tags, Status status, Optional<String> note, int quantity) {
+    }
+
+    static class Node {
+        public Node next;
+    }
+
+    static class Account {
+        private String name;
+        private boolean active;
+        private List<String> roles;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public boolean isActive() {
+            return active;
+        }
+
+        public void setActive(boolean active) {
+            this.active = active;
+        }
+
+        public List<String> getRoles() {
+            return roles;
+        }
+
+        public void setRoles(List<String> roles) {
+            this.roles = roles;
+        }
+    }
+}
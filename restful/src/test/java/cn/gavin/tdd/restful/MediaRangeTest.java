@@ -0,0 +1,85 @@
+package cn.gavin.tdd.restful;
+
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MediaRangeTest {
+    @Test
+    public void should_parse_accept_header_with_quality() {
+        assertEquals(List.of(new MediaRange("text", "html", 1), new MediaRange("application", "json", 0.8), new MediaRange("*", "*", 0.1)),
+                MediaRange.accept(new String[]{"text/html, application/json;q=0.8, */*;q=0.1"}));
+    }
+
+    @Test
+    public void should_treat_missing_accept_header_as_wildcard() {
+        assertEquals(MediaRange.wildcard, MediaRange.accept(new String[0]));
+    }
+
+    @Test
+    public void should_ignore_malformed_media_range() {
+        assertEquals(List.of(new MediaRange("text", "plain", 0)), MediaRange.accept(new String[]{"text, text/plain;q=abc, /json"}));
+    }
+
+    @Test
+    public void should_reuse_parsed_accept_header() {
+        String[] accept = {"application/xml;q=0.9, text/plain"};
+
+        assertSame(MediaRange.accept(accept), MediaRange.accept(accept));
+    }
+
+    @Test
+    public void should_negotiate_concrete_media_type_from_produces() {
+        List<MediaRange> produces = MediaRange.accept(new String[]{"application/json, text/plain"});
+
+        assertEquals(Optional.of(MediaType.TEXT_PLAIN), MediaRange.negotiate(produces, MediaRange.accept(new String[]{"text/*"})));
+        assertEquals(Optional.of(MediaType.APPLICATION_JSON), MediaRange.negotiate(produces, MediaRange.accept(new String[]{"text/plain;q=0.2, application/json"})));
+        assertEquals(Optional.empty(), MediaRange.negotiate(produces, MediaRange.accept(new String[]{"image/png"})));
+    }
+
+    @Test
+    public void should_not_accept_media_type_with_zero_quality() {
+        List<MediaRange> produces = MediaRange.accept(new String[]{MediaType.APPLICATION_JSON});
+
+        assertEquals(-1, MediaRange.score(produces, MediaRange.accept(new String[]{"application/json;q=0"})));
+    }
+
+    @Test
+    public void should_let_zero_quality_on_specific_type_veto_wildcard() {
+        List<MediaRange> json = MediaRange.accept(new String[]{MediaType.APPLICATION_JSON});
+        List<MediaRange> produces = MediaRange.accept(new String[]{"application/json, text/plain"});
+        List<MediaRange> accept = MediaRange.accept(new String[]{"application/json;q=0, */*"});
+
+        assertEquals(-1, MediaRange.score(json, accept));
+        assertEquals(Optional.of(MediaType.TEXT_PLAIN), MediaRange.negotiate(produces, accept));
+        assertEquals(Optional.of(MediaType.TEXT_PLAIN), MediaRange.negotiate(MediaRange.wildcard, MediaRange.accept(new String[]{"application/json;q=0, text/plain"})));
+    }
+
+    @Test
+    public void should_parse_quality_parameter_ignoring_case_and_whitespace() {
+        assertEquals(List.of(new MediaRange("text", "html", 0.5), new MediaRange("application", "json", 0.2)),
+                MediaRange.accept(new String[]{"text/html;Q=0.5, application/json; q = 0.2"}));
+    }
+
+    @Test
+    public void should_use_class_level_produces_if_method_not_annotated() throws NoSuchMethodException {
+        assertEquals(List.of(new MediaRange("application", "json", 1)), MediaRange.produces(Resource.class.getMethod("get")));
+        assertEquals(MediaRange.wildcard, MediaRange.consumes(Resource.class.getMethod("get")));
+    }
+
+    @Path("/resource")
+    @Produces(MediaType.APPLICATION_JSON)
+    static class Resource {
+        @GET
+        public String get() {
+            return "resource";
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package cn.gavin.tdd.restful;
+
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.ext.RuntimeDelegate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+public class MultipartTest {
+    private static final String boundary = "----boundary7MA4YWxkTrZu0gW";
+
+    @TempDir
+    Path directory;
+
+    @BeforeEach
+    public void before() {
+        RuntimeDelegate delegate = Mockito.mock(RuntimeDelegate.class);
+        RuntimeDelegate.setInstance(delegate);
+        when(delegate.createResponseBuilder()).thenAnswer(invocation -> new StudResponseBuilder());
+    }
+
+    @Test
+    public void should_stream_parts_in_order_with_headers() throws IOException {
+        Multipart multipart = multipart(trickle(body(
+                part("form-data; name=\"title\"", null, "hello"),
+                part("form-data; name=\"file\"; filename=\"a.txt\"", "text/plain", "line one\r\nline two"))), 1024, 1024);
+
+        Multipart.Part title = multipart.next();
+        assertEquals("title", title.getName());
+        assertNull(title.getFileName());
+        assertEquals("hello", text(title));
+
+        Multipart.Part file = multipart.next();
+        assertEquals("file", file.getName());
+        assertEquals("a.txt", file.getFileName());
+        assertEquals("text/plain", file.getContentType());
+        assertEquals("line one\r\nline two", text(file));
+
+        assertNull(multipart.next());
+    }
+
+    @Test
+    public void should_skip_unread_content_when_moving_to_next_part() throws IOException {
+        Multipart multipart = multipart(stream(body(
+                part("form-data; name=\"big\"", null, "x".repeat(100_000)),
+                part("form-data; name=\"small\"", null, "y"))), 1024, 1024);
+
+        Multipart.Part big = multipart.next();
+        assertEquals('x', big.getInputStream().read());
+
+        assertEquals("y", text(multipart.next()));
+        assertEquals(-1, big.getInputStream().read());
+    }
+
+    @Test
+    public void should_ignore_preamble_and_epilogue() throws IOException {
+        String body = "preamble\r\n" + body(part("form-data; name=\"a\"", null, "1")) + "\r\nepilogue";
+
+        List<Multipart.Part> parts = multipart(stream(body), 1024, 1024).parts();
+
+        assertEquals(1, parts.size());
+        assertEquals("1", text(parts.get(0)));
+    }
+
+    @Test
+    public void should_keep_content_resembling_boundary_in_part() throws IOException {
+        String content = "--" + boundary.substring(0, 10) + "\r\n--" + boundary.substring(0, boundary.length() - 1) + "!\r\n-";
+
+        assertEquals(content, text(multipart(trickle(body(part("form-data; name=\"a\"", null, content))), 1024, 1024).next()));
+    }
+
+    @Test
+    public void should_spill_parts_over_threshold_to_temp_files() throws IOException {
+        String large = "z".repeat(50_000);
+        Multipart multipart = multipart(stream(body(
+                part("form-data; name=\"small\"", null, "tiny"),
+                part("form-data; name=\"large\"", null, large))), 1024, 64 * 1024);
+
+        List<Multipart.Part> parts = multipart.parts();
+
+        assertFalse(parts.get(0).isSpilled());
+        assertTrue(parts.get(1).isSpilled());
+        assertEquals(50_000, parts.get(1).getSize());
+        assertEquals(large, text(parts.get(1)));
+    }
+
+    @Test
+    public void should_spill_once_memory_budget_is_used_up() throws IOException {
+        List<Multipart.Part> parts = multipart(stream(body(
+                part("form-data; name=\"a\"", null, "a".repeat(600)),
+                part("form-data; name=\"b\"", null, "b".repeat(600)))), 1024, 1024).parts();
+
+        assertFalse(parts.get(0).isSpilled());
+        assertTrue(parts.get(1).isSpilled());
+        assertEquals("b".repeat(600), text(parts.get(1)));
+    }
+
+    @Test
+    public void should_spill_parts_into_a_single_file() throws IOException {
+        List<Multipart.Part> parts = multipart(stream(body(
+                part("form-data; name=\"a\"", null, "a".repeat(3000)),
+                part("form-data; name=\"b\"", null, "b".repeat(2000)),
+                part("form-data; name=\"c\"", null, "c".repeat(4000)))), 1024, 1024).parts();
+
+        assertEquals("c".repeat(4000), text(parts.get(2)));
+        assertEquals("a".repeat(3000), text(parts.get(0)));
+        assertEquals("b".repeat(2000), text(parts.get(1)));
+    }
+
+    @Test
+    public void should_reject_more_parts_than_limit() {
+        Multipart multipart = new Multipart(stream(body(
+                part("form-data; name=\"a\"", null, "1"),
+                part("form-data; name=\"b\"", null, "2"))), boundary, new Multipart.Limits(directory, 1024, 1024, 1, 1024));
+
+        WebApplicationException exception = assertThrows(WebApplicationException.class, multipart::parts);
+
+        assertEquals(413, exception.getResponse().getStatus());
+    }
+
+    @Test
+    public void should_reject_spilling_more_than_limit() {
+        Multipart multipart = new Multipart(stream(body(part("form-data; name=\"a\"", null, "a".repeat(5000)))),
+                boundary, new Multipart.Limits(directory, 1024, 1024, 10, 4096));
+
+        WebApplicationException exception = assertThrows(WebApplicationException.class, multipart::parts);
+
+        assertEquals(413, exception.getResponse().getStatus());
+    }
+
+    @Test
+    public void should_delete_spilled_files_on_close() throws IOException {
+        Multipart multipart = multipart(stream(body(part("form-data; name=\"a\"", null, "a".repeat(5000)))), 1024, 1024);
+        multipart.parts();
+
+        multipart.close();
+
+        try (var files = Files.list(directory)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    public void should_reject_truncated_body_as_bad_request() {
+        String body = body(part("form-data; name=\"a\"", null, "content"));
+
+        WebApplicationException exception = assertThrows(WebApplicationException.class,
+                () -> multipart(stream(body.substring(0, body.length() - 20)), 1024, 1024).parts());
+
+        assertEquals(400, exception.getResponse().getStatus());
+    }
+
+    private Multipart multipart(InputStream stream, int threshold, long memory) {
+        return new Multipart(stream, boundary, new Multipart.Limits(directory, threshold, memory, 100, 1024 * 1024));
+    }
+
+    private static String part(String disposition, String contentType, String content) {
+        return "--" + boundary + "\r\nContent-Disposition: " + disposition + "\r\n"
+                + (contentType == null ? "" : "Content-Type: " + contentType + "\r\n") + "\r\n" + content + "\r\n";
+    }
+
+    private static String body(String... parts) {
+        return String.join("", parts) + "--" + boundary + "--";
+    }
+
+    private static String text(Multipart.Part part) throws IOException {
+        return new String(part.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+    }
+
+    private static InputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static InputStream trickle(String body) {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        return new InputStream() {
+            private int position;
+
+            @Override
+            public int read() {
+                return position < bytes.length ? bytes[position++] & 0xff : -1;
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) {
+                if (position == bytes.length) return -1;
+                int count = Math.min(length, Math.min(3, bytes.length - position));
+                System.arraycopy(bytes, position, buffer, offset, count);
+                position += count;
+                return count;
+            }
+        };
+    }
+}
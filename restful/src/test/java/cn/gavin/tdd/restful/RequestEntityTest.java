@@ -0,0 +1,252 @@
+package cn.gavin.tdd.restful;
+
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.container.ResourceContext;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.UriInfo;
+import jakarta.ws.rs.ext.MessageBodyReader;
+import jakarta.ws.rs.ext.Providers;
+import jakarta.ws.rs.ext.RuntimeDelegate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class RequestEntityTest {
+    private ResourceContext context;
+    private UriInfoBuilder builder;
+    private HttpServletRequest request;
+    private Providers providers;
+    private ServletInputStream input;
+
+    @BeforeEach
+    public void before() throws IOException {
+        context = Mockito.mock(ResourceContext.class);
+        builder = Mockito.mock(UriInfoBuilder.class);
+        request = Mockito.mock(HttpServletRequest.class);
+        providers = Mockito.mock(Providers.class);
+        RuntimeDelegate delegate = Mockito.mock(RuntimeDelegate.class);
+        RuntimeDelegate.setInstance(delegate);
+        when(delegate.createResponseBuilder()).thenAnswer(invocation -> new StudResponseBuilder());
+
+        when(builder.getLastMatchedResource()).thenReturn(new Uploads());
+        when(builder.createUriInfo()).thenReturn(Mockito.mock(UriInfo.class));
+        when(context.getResource(eq(HttpServletRequest.class))).thenReturn(request);
+        when(request.getAttribute(eq(RequestEntity.providersAttribute))).thenReturn(providers);
+        when(request.getHeaderNames()).thenAnswer(invocation -> Collections.enumeration(List.of("Content-Type")));
+        when(request.getHeaders(eq("Content-Type"))).thenAnswer(invocation -> Collections.enumeration(List.of("application/json; charset=UTF-8")));
+        when(request.getContentType()).thenReturn("application/json; charset=UTF-8");
+        body("hello");
+    }
+
+    @Test
+    public void should_pass_request_input_stream_through() throws Exception {
+        assertSame(input, call("stream", InputStream.class));
+    }
+
+    @Test
+    public void should_read_body_into_exactly_sized_byte_array() throws Exception {
+        when(request.getContentLengthLong()).thenReturn(5L);
+
+        assertArrayEquals("hello".getBytes(), (byte[]) call("bytes", byte[].class));
+    }
+
+    @Test
+    public void should_read_body_of_unknown_length() throws Exception {
+        when(request.getContentLengthLong()).thenReturn(-1L);
+
+        assertArrayEquals("hello".getBytes(), (byte[]) call("bytes", byte[].class));
+    }
+
+    @Test
+    public void should_reject_body_shorter_than_content_length() {
+        when(request.getContentLengthLong()).thenReturn(10L);
+
+        WebApplicationException exception = assertThrows(WebApplicationException.class, () -> call("bytes", byte[].class));
+        assertEquals(400, exception.getResponse().getStatus());
+    }
+
+    @Test
+    public void should_reject_declared_length_over_limit_before_reading_body() throws Exception {
+        when(request.getContentLengthLong()).thenReturn(2_000_000_000L);
+
+        WebApplicationException exception = assertThrows(WebApplicationException.class, () -> call("bytes", byte[].class));
+        assertEquals(413, exception.getResponse().getStatus());
+        verify(request, never()).getInputStream();
+    }
+
+    @Test
+    public void should_reject_body_of_unknown_length_growing_over_limit() {
+        when(request.getContentLengthLong()).thenReturn(-1L);
+        when(request.getAttribute(eq(RequestEntity.limitAttribute))).thenReturn(3L);
+
+        WebApplicationException exception = assertThrows(WebApplicationException.class, () -> call("bytes", byte[].class));
+        assertEquals(413, exception.getResponse().getStatus());
+    }
+
+    @Test
+    public void should_wrap_body_bytes_as_byte_buffer() throws Exception {
+        when(request.getContentLengthLong()).thenReturn(5L);
+
+        ByteBuffer buffer = (ByteBuffer) call("buffer", ByteBuffer.class);
+
+        assertEquals("hello", StandardCharsets.UTF_8.decode(buffer).toString());
+    }
+
+    @Test
+    public void should_pass_request_reader_through() throws Exception {
+        Reader reader = Mockito.mock(Reader.class);
+        when(request.getReader()).thenReturn(new BufferedReader(reader));
+
+        assertNotNull(call("reader", Reader.class));
+        verify(request).getReader();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void should_read_entity_with_message_body_reader_selected_by_type_and_content_type() throws Exception {
+        MessageBodyReader<Object> reader = Mockito.mock(MessageBodyReader.class);
+        when(providers.getMessageBodyReader(eq(UserData.class), eq(UserData.class), any(), any())).thenAnswer(invocation -> reader);
+        UserData data = new UserData("John Smith", "john.smith@email.com");
+        when(reader.readFrom(any(), any(), any(), any(), any(), same(input))).thenReturn(data);
+
+        assertSame(data, call("entity", UserData.class));
+
+        verify(providers).getMessageBodyReader(eq(UserData.class), eq(UserData.class), any(),
+                eq(new MediaType("application", "json", "UTF-8")));
+    }
+
+    @Test
+    public void should_respond_unsupported_media_type_if_no_reader_found() {
+        WebApplicationException exception = assertThrows(WebApplicationException.class, () -> call("entity", UserData.class));
+
+        assertEquals(415, exception.getResponse().getStatus());
+    }
+
+    @Test
+    public void should_read_json_entity_with_builtin_provider() throws Exception {
+        when(request.getAttribute(eq(RequestEntity.providersAttribute))).thenReturn(new CachedProviders(new BuiltinProviders(providers)));
+        body("{\"name\":\"John Smith\",\"email\":\"john.smith@email.com\"}");
+
+        assertEquals(new UserData("John Smith", "john.smith@email.com"), call("entity", UserData.class));
+    }
+
+    @Test
+    public void should_stream_multipart_form_data_and_release_it_with_request() throws Exception {
+        when(request.getContentType()).thenReturn("multipart/form-data; boundary=\"xyz\"");
+        body("--xyz\r\nContent-Disposition: form-data; name=\"a\"\r\n\r\n1\r\n--xyz--");
+
+        Multipart multipart = (Multipart) call("multipart", Multipart.class);
+
+        assertEquals("a", multipart.next().getName());
+        verify(request).setAttribute(eq(Multipart.attribute), same(multipart));
+    }
+
+    @Test
+    public void should_respond_unsupported_media_type_for_non_multipart_body() {
+        WebApplicationException exception = assertThrows(WebApplicationException.class, () -> call("multipart", Multipart.class));
+
+        assertEquals(415, exception.getResponse().getStatus());
+    }
+
+    @Test
+    public void should_inject_annotated_parameter_from_context() throws Exception {
+        SomeServiceInContext service = Mockito.mock(SomeServiceInContext.class);
+        when(context.getResource(eq(SomeServiceInContext.class))).thenReturn(service);
+
+        assertSame(service, call("context", SomeServiceInContext.class));
+        verify(request, never()).getInputStream();
+    }
+
+    private Object call(String name, Class<?> type) throws NoSuchMethodException {
+        Method method = Uploads.class.getMethod(name, type);
+        return new DefaultResourceMethod(method).call(context, builder).getEntity();
+    }
+
+    private void body(String body) throws IOException {
+        ByteArrayInputStream bytes = new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+        input = new ServletInputStream() {
+            @Override
+            public int read() {
+                return bytes.read();
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) {
+                return bytes.read(buffer, offset, length);
+            }
+
+            @Override
+            public boolean isFinished() {
+                return bytes.available() == 0;
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setReadListener(ReadListener listener) {
+            }
+        };
+        when(request.getInputStream()).thenReturn(input);
+    }
+
+    public static class Uploads {
+        @POST
+        public Object stream(InputStream entity) {
+            return entity;
+        }
+
+        @POST
+        public Object bytes(byte[] entity) {
+            return entity;
+        }
+
+        @POST
+        public Object buffer(ByteBuffer entity) {
+            return entity;
+        }
+
+        @POST
+        public Object reader(Reader entity) {
+            return entity;
+        }
+
+        @POST
+        public Object entity(UserData entity) {
+            return entity;
+        }
+
+        @POST
+        public Object multipart(Multipart entity) {
+            return entity;
+        }
+
+        @POST
+        public Object context(@Context SomeServiceInContext service) {
+            return service;
+        }
+    }
+}
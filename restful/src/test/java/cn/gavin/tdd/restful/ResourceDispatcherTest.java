@@ -18,6 +18,7 @@ import java.util.Vector;
 
 import static org.junit.Assert.*;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.ArgumentMatchers.same;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -129,7 +130,7 @@ public class ResourceDispatcherTest {
     private ResourceRouter.Resource rootResource(StudUriTemplate stub) {
         ResourceRouter.Resource unMatched = Mockito.mock(ResourceRouter.Resource.class);
         when(unMatched.getUriTemplate()).thenReturn(stub.uriTemplate);
-        when(unMatched.match(same(stub.result), eq("GET"), eq(new String[]{MediaType.WILDCARD}), same(context), eq(builder))).thenReturn(Optional.empty());
+        when(unMatched.match(same(stub.result), eq("GET"), isNull(), eq(new String[]{MediaType.WILDCARD}), same(context), eq(builder))).thenReturn(Optional.empty());
         return unMatched;
     }
 
@@ -143,7 +144,7 @@ public class ResourceDispatcherTest {
     private ResourceRouter.Resource rootResource(StudUriTemplate stub, ResourceRouter.ResourceMethod method) {
         ResourceRouter.Resource matched = Mockito.mock(ResourceRouter.Resource.class);
         when(matched.getUriTemplate()).thenReturn(stub.uriTemplate);
-        when(matched.match(same(stub.result), eq("GET"), eq(new String[]{MediaType.WILDCARD}), same(context), eq(builder))).thenReturn(Optional.of(method));
+        when(matched.match(same(stub.result), eq("GET"), isNull(), eq(new String[]{MediaType.WILDCARD}), same(context), eq(builder))).thenReturn(Optional.of(method));
         return matched;
     }
 
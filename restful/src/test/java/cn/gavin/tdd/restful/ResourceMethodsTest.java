@@ -3,6 +3,7 @@ package cn.gavin.tdd.restful;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.container.ResourceContext;
 import jakarta.ws.rs.core.GenericEntity;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 import jakarta.ws.rs.ext.RuntimeDelegate;
@@ -79,7 +80,7 @@ public class ResourceMethodsTest {
         Response response = (Response) entity.getEntity();
 
         assertEquals(Response.Status.NO_CONTENT.getStatusCode(), response.getStatus());
-        assertEquals(Set.of(HttpMethod.GET, HttpMethod.HEAD, HttpMethod.OPTIONS), response.getAllowedMethods());
+        assertEquals(Set.of(HttpMethod.GET, HttpMethod.HEAD, HttpMethod.OPTIONS), allowed(response));
     }
 
     @Test
@@ -99,7 +100,206 @@ public class ResourceMethodsTest {
         Response response = (Response) entity.getEntity();
 
         assertEquals(Response.Status.NO_CONTENT.getStatusCode(), response.getStatus());
-        assertEquals(Set.of(HttpMethod.POST,HttpMethod.OPTIONS), response.getAllowedMethods());
+        assertEquals(Set.of(HttpMethod.POST,HttpMethod.OPTIONS), allowed(response));
+    }
+
+    @Test
+    public void should_include_all_declared_methods_of_template_in_options() {
+        RuntimeDelegate delegate = Mockito.mock(RuntimeDelegate.class);
+        RuntimeDelegate.setInstance(delegate);
+        Mockito.when(delegate.createResponseBuilder()).thenReturn(new StudResponseBuilder());
+
+        ResourceMethods resourceMethods = new ResourceMethods(Messages.class.getMethods());
+
+        ResourceRouter.ResourceMethod method = resourceMethods.findResourceMethods("/hello", "OPTIONS").get();
+
+        assertEquals("Messages.optionsHello", method.toString());
+        Response response = (Response) resourceMethods.findResourceMethods("/topics/1", "OPTIONS").get()
+                .call(Mockito.mock(ResourceContext.class), Mockito.mock(UriInfoBuilder.class)).getEntity();
+        assertEquals(Set.of(HttpMethod.GET, HttpMethod.HEAD, HttpMethod.OPTIONS), allowed(response));
+    }
+
+    @Test
+    public void should_group_equivalent_templates_in_options() {
+        RuntimeDelegate delegate = Mockito.mock(RuntimeDelegate.class);
+        RuntimeDelegate.setInstance(delegate);
+        Mockito.when(delegate.createResponseBuilder()).thenReturn(new StudResponseBuilder());
+
+        ResourceMethods resourceMethods = new ResourceMethods(Items.class.getMethods());
+
+        Response response = (Response) resourceMethods.findResourceMethods("/items/1", "OPTIONS").get()
+                .call(Mockito.mock(ResourceContext.class), Mockito.mock(UriInfoBuilder.class)).getEntity();
+        assertEquals(Set.of(HttpMethod.GET, HttpMethod.HEAD, HttpMethod.DELETE, HttpMethod.OPTIONS), allowed(response));
+    }
+
+    @Test
+    public void should_reuse_precomputed_options_response() {
+        RuntimeDelegate delegate = Mockito.mock(RuntimeDelegate.class);
+        RuntimeDelegate.setInstance(delegate);
+        Mockito.when(delegate.createResponseBuilder()).thenReturn(new StudResponseBuilder());
+        ResourceContext context = Mockito.mock(ResourceContext.class);
+        UriInfoBuilder builder = Mockito.mock(UriInfoBuilder.class);
+
+        ResourceMethods resourceMethods = new ResourceMethods(Messages.class.getMethods());
+
+        GenericEntity<?> first = resourceMethods.findResourceMethods("/head", "OPTIONS").get().call(context, builder);
+        GenericEntity<?> second = resourceMethods.findResourceMethods("/head", "OPTIONS").get().call(context, builder);
+
+        assertSame(first.getEntity(), second.getEntity());
+        Mockito.verify(delegate, Mockito.times(1)).createResponseBuilder();
+    }
+
+    @Test
+    public void should_prefer_explicit_head_resource_method_on_same_template() {
+        ResourceMethods resourceMethods = new ResourceMethods(Messages.class.getMethods());
+
+        ResourceRouter.ResourceMethod method = resourceMethods.findResourceMethods("/hello", "HEAD").get();
+
+        assertInstanceOf(DefaultResourceMethod.class, method);
+    }
+
+    @ParameterizedTest(name = "{3}")
+    @CsvSource(textBlock = """
+            application/json,                     ,                 Documents.json,      Accept exact media type
+            text/*,                               ,                 Documents.html,      Accept more specific produces on ties
+            'text/plain;q=0.5, application/json', ,                 Documents.json,      Accept with higher quality
+            ,                                     application/xml,  Documents.postXml,   Content-Type consumed
+            ,                                     application/json, Documents.postAny,   Content-Type fallback to wildcard
+            """)
+    public void should_select_resource_method_by_media_type(String accept, String contentType, String resourceMethod, String context) {
+        ResourceMethods resourceMethods = new ResourceMethods(Documents.class.getMethods());
+        String httpMethod = contentType == null ? HttpMethod.GET : HttpMethod.POST;
+        String[] mediaTypes = accept == null ? new String[0] : new String[]{accept};
+
+        assertEquals(resourceMethod, resourceMethods.findResourceMethods("", httpMethod, contentType, mediaTypes).get().toString());
+    }
+
+    @Test
+    public void should_throw_not_acceptable_if_no_resource_method_produces_accepted_type() {
+        RuntimeDelegate delegate = Mockito.mock(RuntimeDelegate.class);
+        RuntimeDelegate.setInstance(delegate);
+        Mockito.when(delegate.createResponseBuilder()).thenReturn(new StudResponseBuilder());
+        ResourceMethods resourceMethods = new ResourceMethods(Documents.class.getMethods());
+
+        WebApplicationException exception = assertThrows(WebApplicationException.class,
+                () -> resourceMethods.findResourceMethods("", HttpMethod.GET, null, new String[]{"image/png"}));
+
+        assertEquals(Response.Status.NOT_ACCEPTABLE.getStatusCode(), exception.getResponse().getStatus());
+    }
+
+    @Test
+    public void should_throw_unsupported_media_type_if_no_resource_method_consumes_content_type() {
+        RuntimeDelegate delegate = Mockito.mock(RuntimeDelegate.class);
+        RuntimeDelegate.setInstance(delegate);
+        Mockito.when(delegate.createResponseBuilder()).thenReturn(new StudResponseBuilder());
+        ResourceMethods resourceMethods = new ResourceMethods(Documents.class.getMethods());
+
+        WebApplicationException exception = assertThrows(WebApplicationException.class,
+                () -> resourceMethods.findResourceMethods("/strict", HttpMethod.PUT, "image/png", new String[0]));
+
+        assertEquals(Response.Status.UNSUPPORTED_MEDIA_TYPE.getStatusCode(), exception.getResponse().getStatus());
+    }
+
+    @Test
+    public void should_match_path_template_before_negotiating_media_type() {
+        RuntimeDelegate delegate = Mockito.mock(RuntimeDelegate.class);
+        RuntimeDelegate.setInstance(delegate);
+        Mockito.when(delegate.createResponseBuilder()).thenReturn(new StudResponseBuilder());
+        ResourceMethods resourceMethods = new ResourceMethods(Catalog.class.getMethods());
+
+        assertEquals("Catalog.literal", resourceMethods.findResourceMethods("/a/b", HttpMethod.GET, null, new String[]{"application/json, text/plain;q=0.1"}).get().toString());
+        assertEquals("Catalog.variable", resourceMethods.findResourceMethods("/a/c", HttpMethod.GET, null, new String[]{"application/json, text/plain;q=0.1"}).get().toString());
+        WebApplicationException exception = assertThrows(WebApplicationException.class,
+                () -> resourceMethods.findResourceMethods("/a/b", HttpMethod.GET, null, new String[]{"application/json"}));
+        assertEquals(Response.Status.NOT_ACCEPTABLE.getStatusCode(), exception.getResponse().getStatus());
+    }
+
+    @Test
+    public void should_reject_overloaded_version_method() {
+        assertThrows(IllegalArgumentException.class, () -> new ResourceMethods(Versioned.class.getMethods()));
+    }
+
+    private static Set<String> allowed(Response response) {
+        RenderedHeader allow = (RenderedHeader) response.getHeaders().getFirst(HttpHeaders.ALLOW);
+        return Set.of(allow.toString().split(", "));
+    }
+
+    @Path("/versioned")
+    static class Versioned {
+        @GET
+        @Version("version")
+        public String get() {
+            return "versioned";
+        }
+
+        public String version() {
+            return "v1";
+        }
+
+        public String version(@QueryParam("id") String id) {
+            return "v2";
+        }
+    }
+
+    @Path("/")
+    static class Items {
+        @GET
+        @Path("/items/{id}")
+        public String get() {
+            return "item";
+        }
+
+        @DELETE
+        @Path("items/{name}/")
+        public void delete() {
+        }
+    }
+
+    @Path("/catalog")
+    static class Catalog {
+        @GET
+        @Path("/a/{x}")
+        @Produces(MediaType.APPLICATION_JSON)
+        public String variable() {
+            return "variable";
+        }
+
+        @GET
+        @Path("/a/b")
+        @Produces(MediaType.TEXT_PLAIN)
+        public String literal() {
+            return "literal";
+        }
+    }
+
+    @Path("/documents")
+    static class Documents {
+        @GET
+        @Produces(MediaType.APPLICATION_JSON)
+        public String json() {
+            return "json";
+        }
+
+        @GET
+        @Produces({MediaType.TEXT_HTML, "text/*"})
+        public String html() {
+            return "html";
+        }
+
+        @POST
+        @Consumes(MediaType.APPLICATION_XML)
+        public void postXml() {
+        }
+
+        @POST
+        public void postAny() {
+        }
+
+        @PUT
+        @Path("/strict")
+        @Consumes(MediaType.APPLICATION_XML)
+        public void putStrict() {
+        }
     }
 
 
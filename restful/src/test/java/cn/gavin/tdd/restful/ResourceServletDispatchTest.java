@@ -0,0 +1,139 @@
+package cn.gavin.tdd.restful;
+
+import jakarta.servlet.Servlet;
+import jakarta.ws.rs.core.GenericEntity;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.ext.Providers;
+import jakarta.ws.rs.ext.RuntimeDelegate;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+public class ResourceServletDispatchTest extends ServletTest {
+    private static final int maximumConcurrency = 2;
+    private static final Duration timeout = Duration.ofSeconds(2);
+
+    private ExecutorService executor = Executors.newCachedThreadPool(runnable -> new Thread(runnable, "dispatcher"));
+    private ResourceRouter router = (request, context) -> (OutboundResponse) Response.ok().build();
+
+    @Override
+    protected Servlet getServlet() {
+        Runtime runtime = Mockito.mock(Runtime.class);
+        when(runtime.getResourceRouter()).thenAnswer(invocation -> router);
+        when(runtime.getProviders()).thenReturn(Mockito.mock(Providers.class));
+        return new ResourceServlet(runtime, command -> executor.execute(command), maximumConcurrency, timeout);
+    }
+
+    @BeforeEach
+    public void before() {
+        RuntimeDelegate delegate = Mockito.mock(RuntimeDelegate.class);
+        RuntimeDelegate.setInstance(delegate);
+        when(delegate.createResponseBuilder()).thenAnswer(invocation -> new StudResponseBuilder());
+    }
+
+    @AfterEach
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void should_dispatch_request_on_executor() {
+        AtomicReference<String> thread = new AtomicReference<>();
+        router = (request, context) -> {
+            thread.set(Thread.currentThread().getName());
+            return (OutboundResponse) Response.ok().build();
+        };
+
+        HttpResponse<String> response = get("/test");
+
+        assertEquals(200, response.statusCode());
+        assertEquals("dispatcher", thread.get());
+    }
+
+    @Test
+    public void should_not_exceed_maximum_concurrency() {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        router = (request, context) -> {
+            peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            } finally {
+                running.decrementAndGet();
+            }
+            return (OutboundResponse) Response.ok().build();
+        };
+
+        List<CompletableFuture<HttpResponse<String>>> responses = IntStream.range(0, 6).mapToObj(i -> CompletableFuture.supplyAsync(() -> get("/test"), executor)).toList();
+
+        assertTrue(responses.stream().allMatch(response -> response.join().statusCode() == 200));
+        assertTrue(peak.get() <= maximumConcurrency);
+    }
+
+    @Test
+    public void should_respond_service_unavailable_if_executor_rejected() {
+        executor.shutdown();
+
+        HttpResponse<String> response = get("/test");
+
+        assertEquals(503, response.statusCode());
+    }
+
+    @Test
+    public void should_respond_service_unavailable_if_dispatch_timed_out() {
+        router = (request, context) -> {
+            try {
+                Thread.sleep(timeout.multipliedBy(3).toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return (OutboundResponse) Response.ok().build();
+        };
+
+        HttpResponse<String> response = get("/test");
+
+        assertEquals(503, response.statusCode());
+    }
+
+    @Test
+    public void should_respond_service_unavailable_if_suspended_response_timed_out() {
+        OutboundResponse suspended = Mockito.mock(OutboundResponse.class);
+        when(suspended.getGenericEntity()).thenReturn(new GenericEntity<>(new CompletableFuture<OutboundResponse>(), CompletionStage.class));
+        router = (request, context) -> suspended;
+
+        HttpResponse<String> response = get("/test");
+
+        assertEquals(503, response.statusCode());
+    }
+
+    @Test
+    public void should_dispatch_on_virtual_thread_if_supported() throws Exception {
+        assumeTrue(VirtualThreads.isSupported());
+        executor = VirtualThreads.newExecutor();
+        AtomicReference<Thread> thread = new AtomicReference<>();
+        router = (request, context) -> {
+            thread.set(Thread.currentThread());
+            return (OutboundResponse) Response.ok().build();
+        };
+
+        get("/test");
+
+        assertEquals(true, Thread.class.getMethod("isVirtual").invoke(thread.get()));
+    }
+}
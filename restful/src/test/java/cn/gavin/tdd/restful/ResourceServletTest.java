@@ -1,6 +1,7 @@
 package cn.gavin.tdd.restful;
 
 import jakarta.servlet.Servlet;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.ws.rs.WebApplicationException;
 import jakarta.ws.rs.container.ResourceContext;
 import jakarta.ws.rs.core.*;
@@ -10,6 +11,9 @@ import jakarta.ws.rs.ext.RuntimeDelegate;
 import org.junit.jupiter.api.*;
 import org.mockito.Mockito;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.PrintWriter;
@@ -19,11 +23,24 @@ import java.lang.annotation.RetentionPolicy;
 import java.lang.reflect.Method;
 import java.lang.reflect.Type;
 import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.when;
 
@@ -33,6 +50,7 @@ public class ResourceServletTest extends ServletTest {
     private ResourceContext resourceContext;
     private Providers providers;
     private RuntimeDelegate delegate;
+    private ResourceServlet servlet;
 
     @Override
     protected Servlet getServlet() {
@@ -43,7 +61,7 @@ public class ResourceServletTest extends ServletTest {
         when(runtime.getResourceRouter()).thenReturn(router);
         when(runtime.createResourceContext(any(), any())).thenReturn(resourceContext);
         when(runtime.getProviders()).thenReturn(providers);
-        return new ResourceServlet(runtime);
+        return servlet = new ResourceServlet(runtime);
     }
 
     @BeforeEach
@@ -75,6 +93,27 @@ public class ResourceServletTest extends ServletTest {
             assertArrayEquals(new String[]{"SESSION_ID=session", "USER_ID=user"}, httpResponse.headers().allValues("Set-Cookie").toArray(String[]::new));
         }
 
+        @Test
+        public void should_create_header_delegate_once_for_same_value_type() throws Exception {
+            response().headers("Set-Cookie", new NewCookie.Builder("SESSION_ID").value("session").build(),
+                    new NewCookie.Builder("USER_ID").value("user").build()).returnFrom(router);
+
+            get("test");
+            get("test");
+
+            Mockito.verify(delegate, Mockito.times(1)).createHeaderDelegate(eq(NewCookie.class));
+        }
+
+        @Test
+        public void should_write_rendered_header_without_header_delegate() throws Exception {
+            response().headers(HttpHeaders.CACHE_CONTROL, RenderedHeader.of("max-age=60")).returnFrom(router);
+
+            HttpResponse<String> httpResponse = get("test");
+
+            assertEquals("max-age=60", httpResponse.headers().firstValue(HttpHeaders.CACHE_CONTROL).get());
+            Mockito.verify(delegate, Mockito.never()).createHeaderDelegate(eq(RenderedHeader.class));
+        }
+
         @Test
         public void should_write_entity_to_http_response_using_message_body_writer() throws Exception {
             response().entity(new GenericEntity<>("entity", String.class), new Annotation[0]).returnFrom(router);
@@ -84,6 +123,360 @@ public class ResourceServletTest extends ServletTest {
             assertEquals("entity", httpResponse.body());
         }
 
+        @Test
+        public void should_write_entity_larger_than_pooled_buffer() throws Exception {
+            String entity = "0123456789".repeat(10_000);
+            response().entity(new GenericEntity<>(entity, String.class), new Annotation[0]).returnFrom(router);
+
+            HttpResponse<String> httpResponse = get("/test");
+
+            assertEquals(entity, httpResponse.body());
+            assertTrue(httpResponse.headers().firstValue("Content-Length").isEmpty());
+        }
+
+        @Test
+        public void should_send_buffered_entity_with_content_length() throws Exception {
+            response().entity(new GenericEntity<>("entity", String.class), new Annotation[0]).returnFrom(router);
+
+            HttpResponse<String> httpResponse = get("/test");
+
+            assertEquals(6, httpResponse.headers().firstValueAsLong("Content-Length").getAsLong());
+        }
+
+        @Test
+        public void should_generate_etag_from_entity_content() throws Exception {
+            response().entity(new GenericEntity<>("entity", String.class), new Annotation[0]).returnFrom(router);
+
+            String etag = get("/test").headers().firstValue(HttpHeaders.ETAG).get();
+
+            assertTrue(etag.startsWith("W/\"6-"));
+            assertEquals(etag, get("/test").headers().firstValue(HttpHeaders.ETAG).get());
+        }
+
+        @Test
+        public void should_respond_not_modified_if_entity_etag_matches() throws Exception {
+            response().entity(new GenericEntity<>("entity", String.class), new Annotation[0]).returnFrom(router);
+            String etag = get("/test").headers().firstValue(HttpHeaders.ETAG).get();
+
+            HttpResponse<String> httpResponse = get("/test", HttpHeaders.IF_NONE_MATCH, etag);
+
+            assertEquals(Response.Status.NOT_MODIFIED.getStatusCode(), httpResponse.statusCode());
+            assertEquals("", httpResponse.body());
+        }
+
+        @Test
+        public void should_keep_etag_supplied_by_response() throws Exception {
+            response().headers(HttpHeaders.ETAG, RenderedHeader.of("\"v1\"")).entity(new GenericEntity<>("entity", String.class), new Annotation[0]).returnFrom(router);
+
+            HttpResponse<String> httpResponse = get("/test", HttpHeaders.IF_NONE_MATCH, "\"v0\"");
+
+            assertEquals("entity", httpResponse.body());
+            assertEquals("\"v1\"", httpResponse.headers().firstValue(HttpHeaders.ETAG).get());
+        }
+
+        @Test
+        public void should_respond_not_modified_if_supplied_etag_matches() throws Exception {
+            response().headers(HttpHeaders.ETAG, RenderedHeader.of("\"v1\"")).entity(new GenericEntity<>("entity", String.class), new Annotation[0]).returnFrom(router);
+
+            HttpResponse<String> httpResponse = get("/test", HttpHeaders.IF_NONE_MATCH, "W/\"v1\"");
+
+            assertEquals(Response.Status.NOT_MODIFIED.getStatusCode(), httpResponse.statusCode());
+            assertEquals("", httpResponse.body());
+        }
+
+        @Test
+        public void should_respond_not_modified_if_not_modified_since() throws Exception {
+            response().headers(HttpHeaders.LAST_MODIFIED, RenderedHeader.of("Tue, 01 Sep 2026 10:00:00 GMT"))
+                    .entity(new GenericEntity<>("entity", String.class), new Annotation[0]).returnFrom(router);
+
+            assertEquals(Response.Status.NOT_MODIFIED.getStatusCode(), get("/test", HttpHeaders.IF_MODIFIED_SINCE, "Tue, 01 Sep 2026 10:00:00 GMT").statusCode());
+            assertEquals("entity", get("/test", HttpHeaders.IF_MODIFIED_SINCE, "Tue, 01 Sep 2026 09:59:59 GMT").body());
+        }
+
+        @Test
+        public void should_select_precompressed_variant_by_accept_encoding() throws Exception {
+            ByteBuffer identity = ByteBuffer.wrap("identity".getBytes()), gzip = ByteBuffer.wrap(DecodeRequestEntity.gzip("identity"));
+            response().headers(HttpHeaders.ETAG, RenderedHeader.of("\"v1\""))
+                    .entity(new GenericEntity<>(new StaticResources.Variants(identity, gzip, RenderedHeader.of("\"v1-gzip\"")), StaticResources.Variants.class), new Annotation[0])
+                    .returnFrom(router);
+
+            HttpResponse<byte[]> compressed = get("/test", HttpResponse.BodyHandlers.ofByteArray(), "Accept-Encoding", "gzip");
+            HttpResponse<String> plain = get("/test", "Accept-Encoding", "gzip;q=0");
+
+            assertEquals("gzip", compressed.headers().firstValue(HttpHeaders.CONTENT_ENCODING).get());
+            assertEquals("\"v1-gzip\"", compressed.headers().firstValue(HttpHeaders.ETAG).get());
+            assertEquals("identity", new String(new GZIPInputStream(new ByteArrayInputStream(compressed.body())).readAllBytes()));
+            assertEquals("identity", plain.body());
+            assertEquals("\"v1\"", plain.headers().firstValue(HttpHeaders.ETAG).get());
+        }
+
+        @Test
+        public void should_compress_entity_with_gzip_if_accepted() throws Exception {
+            String entity = "compressible ".repeat(200);
+            response().entity(new GenericEntity<>(entity, String.class), new Annotation[0]).returnFrom(router);
+
+            HttpResponse<byte[]> httpResponse = get("/test", HttpResponse.BodyHandlers.ofByteArray(), "Accept-Encoding", "gzip, deflate");
+
+            assertEquals("gzip", httpResponse.headers().firstValue(HttpHeaders.CONTENT_ENCODING).get());
+            assertEquals(HttpHeaders.ACCEPT_ENCODING, httpResponse.headers().firstValue(HttpHeaders.VARY).get());
+            assertEquals(httpResponse.body().length, httpResponse.headers().firstValueAsLong("Content-Length").getAsLong());
+            assertEquals(entity, new String(new GZIPInputStream(new ByteArrayInputStream(httpResponse.body())).readAllBytes()));
+        }
+
+        @Test
+        public void should_compress_entity_with_deflate_if_preferred() throws Exception {
+            String entity = "compressible ".repeat(200);
+            response().entity(new GenericEntity<>(entity, String.class), new Annotation[0]).returnFrom(router);
+
+            HttpResponse<byte[]> httpResponse = get("/test", HttpResponse.BodyHandlers.ofByteArray(), "Accept-Encoding", "gzip;q=0.5, deflate");
+
+            assertEquals("deflate", httpResponse.headers().firstValue(HttpHeaders.CONTENT_ENCODING).get());
+            assertEquals(entity, new String(new InflaterInputStream(new ByteArrayInputStream(httpResponse.body())).readAllBytes()));
+        }
+
+        @Test
+        public void should_compress_entity_spilled_from_pooled_buffers() throws Exception {
+            String entity = "0123456789".repeat(10_000);
+            response().entity(new GenericEntity<>(entity, String.class), new Annotation[0]).returnFrom(router);
+
+            HttpResponse<byte[]> httpResponse = get("/test", HttpResponse.BodyHandlers.ofByteArray(), "Accept-Encoding", "gzip");
+
+            assertEquals("gzip", httpResponse.headers().firstValue(HttpHeaders.CONTENT_ENCODING).get());
+            assertEquals(entity, new String(new GZIPInputStream(new ByteArrayInputStream(httpResponse.body())).readAllBytes()));
+        }
+
+        @Test
+        public void should_not_compress_entity_below_minimum_length() throws Exception {
+            response().entity(new GenericEntity<>("entity", String.class), new Annotation[0]).returnFrom(router);
+
+            HttpResponse<String> httpResponse = get("/test", "Accept-Encoding", "gzip");
+
+            assertEquals("entity", httpResponse.body());
+            assertTrue(httpResponse.headers().firstValue(HttpHeaders.CONTENT_ENCODING).isEmpty());
+            assertEquals(HttpHeaders.ACCEPT_ENCODING, httpResponse.headers().firstValue(HttpHeaders.VARY).get());
+        }
+
+        @Test
+        public void should_not_compress_media_type_not_allowed() throws Exception {
+            String entity = "compressible ".repeat(200);
+            response().headers(HttpHeaders.CONTENT_TYPE, RenderedHeader.of("image/png"))
+                    .entity(new GenericEntity<>(entity, String.class), new Annotation[0]).returnFrom(router);
+
+            HttpResponse<String> httpResponse = get("/test", "Accept-Encoding", "gzip");
+
+            assertEquals(entity, httpResponse.body());
+            assertTrue(httpResponse.headers().firstValue(HttpHeaders.CONTENT_ENCODING).isEmpty());
+            assertTrue(httpResponse.headers().firstValue(HttpHeaders.VARY).isEmpty());
+        }
+
+        @Test
+        public void should_write_streaming_output_to_http_response() throws Exception {
+            StreamingOutput output = stream -> stream.write("streamed".getBytes());
+            response().entity(new GenericEntity<>(output, StreamingOutput.class), new Annotation[0]).returnFrom(router);
+
+            HttpResponse<String> httpResponse = get("/test");
+
+            assertEquals("streamed", httpResponse.body());
+        }
+
+        @Test
+        public void should_send_file_entity_with_content_length() throws Exception {
+            Path path = Files.writeString(Files.createTempFile("entity", ".txt"), "file content");
+            response().entity(new GenericEntity<>(path.toFile(), File.class), new Annotation[0]).returnFrom(router);
+
+            HttpResponse<String> httpResponse = get("/test");
+
+            assertEquals("file content", httpResponse.body());
+            assertEquals(12, httpResponse.headers().firstValueAsLong("Content-Length").getAsLong());
+            Mockito.verify(providers, Mockito.never()).getMessageBodyWriter(eq(File.class), any(), any(), any());
+        }
+
+        @Test
+        public void should_send_range_of_small_file_entity_spanning_pooled_buffers() throws Exception {
+            String content = "0123456789".repeat(3_000);
+            Path path = Files.writeString(Files.createTempFile("entity", ".txt"), content);
+            response().entity(new GenericEntity<>(path, Path.class), new Annotation[0]).returnFrom(router);
+
+            HttpResponse<String> httpResponse = get("/test", "Range", "bytes=5-20004");
+
+            assertEquals(Response.Status.PARTIAL_CONTENT.getStatusCode(), httpResponse.statusCode());
+            assertEquals(content.substring(5, 20005), httpResponse.body());
+        }
+
+        @Test
+        public void should_send_path_entity_with_content_length() throws Exception {
+            String content = "0123456789".repeat(100_000);
+            Path path = Files.writeString(Files.createTempFile("entity", ".txt"), content);
+            response().entity(new GenericEntity<>(path, Path.class), new Annotation[0]).returnFrom(router);
+
+            HttpResponse<String> httpResponse = get("/test");
+
+            assertEquals(content, httpResponse.body());
+            assertEquals(content.length(), httpResponse.headers().firstValueAsLong("Content-Length").getAsLong());
+        }
+
+        @Test
+        public void should_send_file_channel_entity_from_its_position() throws Exception {
+            Path path = Files.writeString(Files.createTempFile("entity", ".txt"), "skipped:sent");
+            FileChannel channel = FileChannel.open(path).position(8);
+            response().entity(new GenericEntity<>(channel, FileChannel.class), new Annotation[0]).returnFrom(router);
+
+            HttpResponse<String> httpResponse = get("/test");
+
+            assertEquals("sent", httpResponse.body());
+            assertEquals(4, httpResponse.headers().firstValueAsLong("Content-Length").getAsLong());
+        }
+
+        @Test
+        public void should_accept_ranges_for_binary_entity() throws Exception {
+            response().entity(new GenericEntity<>("bytes".getBytes(), byte[].class), new Annotation[0]).returnFrom(router);
+
+            HttpResponse<String> httpResponse = get("/test");
+
+            assertEquals("bytes", httpResponse.body());
+            assertEquals("bytes", httpResponse.headers().firstValue("Accept-Ranges").get());
+        }
+
+        @Test
+        public void should_write_byte_array_with_application_message_body_writer_if_registered() throws Exception {
+            response().entity(new GenericEntity<>("bytes".getBytes(), byte[].class), new Annotation[0]).returnFrom(router);
+            when(providers.getMessageBodyWriter(eq(byte[].class), eq(byte[].class), any(), any())).thenReturn(new MessageBodyWriter<>() {
+                @Override
+                public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+                    return true;
+                }
+
+                @Override
+                public void writeTo(byte[] bytes, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType, MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream) throws IOException {
+                    entityStream.write("written".getBytes());
+                }
+            });
+
+            HttpResponse<String> httpResponse = get("/test", "Range", "bytes=0-0");
+
+            assertEquals(Response.Status.OK.getStatusCode(), httpResponse.statusCode());
+            assertEquals("written", httpResponse.body());
+            assertTrue(httpResponse.headers().firstValue("Accept-Ranges").isEmpty());
+        }
+
+        @Test
+        public void should_send_coalesced_ranges_as_single_part() throws Exception {
+            response().entity(new GenericEntity<>(ByteBuffer.wrap("0123456789".getBytes()), ByteBuffer.class), new Annotation[0]).returnFrom(router);
+
+            HttpResponse<String> httpResponse = get("/test", "Range", "bytes=4-5,0-2,3-3");
+
+            assertEquals(Response.Status.PARTIAL_CONTENT.getStatusCode(), httpResponse.statusCode());
+            assertEquals("bytes 0-5/10", httpResponse.headers().firstValue("Content-Range").get());
+            assertEquals("012345", httpResponse.body());
+        }
+
+        @Test
+        public void should_send_requested_range_of_file_entity() throws Exception {
+            Path path = Files.writeString(Files.createTempFile("entity", ".txt"), "0123456789");
+            response().entity(new GenericEntity<>(path, Path.class), new Annotation[0]).returnFrom(router);
+
+            HttpResponse<String> httpResponse = get("/test", "Range", "bytes=2-5");
+
+            assertEquals(Response.Status.PARTIAL_CONTENT.getStatusCode(), httpResponse.statusCode());
+            assertEquals("2345", httpResponse.body());
+            assertEquals("bytes 2-5/10", httpResponse.headers().firstValue("Content-Range").get());
+            assertEquals(4, httpResponse.headers().firstValueAsLong("Content-Length").getAsLong());
+        }
+
+        @Test
+        public void should_send_multiple_ranges_as_multipart_byteranges() throws Exception {
+            response().headers(HttpHeaders.CONTENT_TYPE, RenderedHeader.of("text/plain"))
+                    .entity(new GenericEntity<>(ByteBuffer.wrap("0123456789".getBytes()), ByteBuffer.class), new Annotation[0]).returnFrom(router);
+
+            HttpResponse<String> httpResponse = get("/test", "Range", "bytes=0-1,-2");
+
+            assertEquals(Response.Status.PARTIAL_CONTENT.getStatusCode(), httpResponse.statusCode());
+            String contentType = httpResponse.headers().firstValue(HttpHeaders.CONTENT_TYPE).get();
+            assertTrue(contentType.startsWith("multipart/byteranges; boundary="));
+            String boundary = contentType.substring(contentType.indexOf('=') + 1);
+            assertEquals("\r\n--" + boundary + "\r\nContent-Type: text/plain\r\nContent-Range: bytes 0-1/10\r\n\r\n01"
+                    + "\r\n--" + boundary + "\r\nContent-Type: text/plain\r\nContent-Range: bytes 8-9/10\r\n\r\n89"
+                    + "\r\n--" + boundary + "--\r\n", httpResponse.body());
+        }
+
+        @Test
+        public void should_ignore_range_for_methods_other_than_get() throws Exception {
+            response().entity(new GenericEntity<>("bytes".getBytes(), byte[].class), new Annotation[0]).returnFrom(router);
+
+            HttpResponse<String> httpResponse = post("/test", new byte[0], "Range", "bytes=10-");
+
+            assertEquals(Response.Status.OK.getStatusCode(), httpResponse.statusCode());
+            assertEquals("bytes", httpResponse.body());
+            assertTrue(httpResponse.headers().firstValue("Accept-Ranges").isEmpty());
+        }
+
+        @Test
+        public void should_respond_416_if_range_not_satisfiable() throws Exception {
+            response().entity(new GenericEntity<>("bytes".getBytes(), byte[].class), new Annotation[0]).returnFrom(router);
+
+            HttpResponse<String> httpResponse = get("/test", "Range", "bytes=10-");
+
+            assertEquals(Response.Status.REQUESTED_RANGE_NOT_SATISFIABLE.getStatusCode(), httpResponse.statusCode());
+            assertEquals("bytes */5", httpResponse.headers().firstValue("Content-Range").get());
+            assertEquals("", httpResponse.body());
+        }
+
+        @Test
+        public void should_send_whole_entity_if_if_range_does_not_match() throws Exception {
+            response().headers(HttpHeaders.ETAG, RenderedHeader.of("\"v2\""))
+                    .entity(new GenericEntity<>("bytes".getBytes(), byte[].class), new Annotation[0]).returnFrom(router);
+
+            HttpResponse<String> httpResponse = get("/test", "Range", "bytes=0-0", "If-Range", "\"v1\"");
+
+            assertEquals(Response.Status.OK.getStatusCode(), httpResponse.statusCode());
+            assertEquals("bytes", httpResponse.body());
+        }
+
+        @Test
+        public void should_send_range_if_if_range_matches() throws Exception {
+            response().headers(HttpHeaders.ETAG, RenderedHeader.of("\"v1\""))
+                    .entity(new GenericEntity<>("bytes".getBytes(), byte[].class), new Annotation[0]).returnFrom(router);
+
+            HttpResponse<String> httpResponse = get("/test", "Range", "bytes=0-0", "If-Range", "\"v1\"");
+
+            assertEquals(Response.Status.PARTIAL_CONTENT.getStatusCode(), httpResponse.statusCode());
+            assertEquals("b", httpResponse.body());
+        }
+
+        @Test
+        public void should_write_stream_elements_using_element_message_body_writer() throws Exception {
+            Stream<String> elements = Stream.of("a", "b", "c");
+            response().entity(new GenericEntity<>(elements, new GenericType<Stream<String>>() {
+            }.getType()), new Annotation[0]).returnFrom(router);
+
+            HttpResponse<String> httpResponse = get("/test");
+
+            assertEquals("abc", httpResponse.body());
+        }
+
+        @Test
+        public void should_write_json_stream_elements_as_array_using_builtin_provider() throws Exception {
+            Stream<Point> elements = Stream.of(new Point(1, 2), new Point(3, 4));
+            response().mediaType(MediaType.APPLICATION_JSON_TYPE).entity(new GenericEntity<>(elements, new GenericType<Stream<Point>>() {
+            }.getType()), new Annotation[0]).returnFrom(router);
+
+            HttpResponse<String> httpResponse = get("/test");
+
+            assertEquals("[{\"x\":1,\"y\":2},{\"x\":3,\"y\":4}]", httpResponse.body());
+        }
+
+        @Test
+        public void should_write_iterator_elements_using_element_message_body_writer() throws Exception {
+            Iterator<String> elements = List.of("x", "y").iterator();
+            response().entity(new GenericEntity<>(elements, new GenericType<Iterator<String>>() {
+            }.getType()), new Annotation[0]).returnFrom(router);
+
+            HttpResponse<String> httpResponse = get("/test");
+
+            assertEquals("xy", httpResponse.body());
+            Mockito.verify(providers, Mockito.times(1)).getMessageBodyWriter(eq(String.class), eq(String.class), any(), any());
+        }
+
         @Test
         public void should_not_call_message_body_writer_if_entity_is_null() throws Exception {
             response().entity(null, new Annotation[0]).returnFrom(router);
@@ -94,6 +487,29 @@ public class ResourceServletTest extends ServletTest {
             assertEquals("", httpResponse.body());
         }
 
+        @Test
+        public void should_respond_when_pending_response_completed() throws Exception {
+            CompletableFuture<OutboundResponse> pending = new CompletableFuture<>();
+            response().entity(new GenericEntity<>(pending, CompletionStage.class), new Annotation[0]).returnFrom(router);
+            response().status(Response.Status.CREATED).build(completed -> CompletableFuture.delayedExecutor(50, TimeUnit.MILLISECONDS).execute(() -> pending.complete(completed)));
+
+            HttpResponse<String> httpResponse = get("/test");
+
+            assertEquals(Response.Status.CREATED.getStatusCode(), httpResponse.statusCode());
+            assertEquals("entity", httpResponse.body());
+        }
+
+        @Test
+        public void should_map_exception_when_pending_response_failed() throws Exception {
+            CompletableFuture<OutboundResponse> pending = CompletableFuture.failedFuture(new IllegalArgumentException());
+            response().entity(new GenericEntity<>(pending, CompletionStage.class), new Annotation[0]).returnFrom(router);
+            when(providers.getExceptionMapper(eq(IllegalArgumentException.class))).thenReturn(e -> response().status(Response.Status.FORBIDDEN).build());
+
+            HttpResponse<String> httpResponse = get("/test");
+
+            assertEquals(Response.Status.FORBIDDEN.getStatusCode(), httpResponse.statusCode());
+        }
+
         @Test
         public void should_use_status_from_response() throws Exception {
             response().status(Response.Status.NOT_MODIFIED).returnFrom(router);
@@ -104,6 +520,55 @@ public class ResourceServletTest extends ServletTest {
         }
     }
 
+    @Nested
+    class DecodeRequestEntity {
+        private final AtomicReference<String> received = new AtomicReference<>();
+
+        @BeforeEach
+        public void before() {
+            when(delegate.createResponseBuilder()).thenAnswer(invocation -> new StudResponseBuilder());
+            response().build(response -> when(router.dispatch(any(), eq(resourceContext))).thenAnswer(invocation -> {
+                HttpServletRequest request = invocation.getArgument(0);
+                received.set(new String(request.getInputStream().readAllBytes()));
+                return response;
+            }));
+        }
+
+        @Test
+        public void should_decompress_gzip_request_entity() throws Exception {
+            String entity = "compressed ".repeat(100);
+
+            HttpResponse<String> httpResponse = post("/test", gzip(entity), "Content-Encoding", "gzip");
+
+            assertEquals(Response.Status.OK.getStatusCode(), httpResponse.statusCode());
+            assertEquals(entity, received.get());
+        }
+
+        @Test
+        public void should_respond_413_if_decompressed_entity_too_large() throws Exception {
+            servlet.setDecompression(new Decompression(16));
+
+            HttpResponse<String> httpResponse = post("/test", gzip("compressed ".repeat(100)), "Content-Encoding", "gzip");
+
+            assertEquals(Response.Status.REQUEST_ENTITY_TOO_LARGE.getStatusCode(), httpResponse.statusCode());
+        }
+
+        @Test
+        public void should_respond_415_if_content_encoding_not_supported() throws Exception {
+            HttpResponse<String> httpResponse = post("/test", "entity".getBytes(), "Content-Encoding", "br");
+
+            assertEquals(Response.Status.UNSUPPORTED_MEDIA_TYPE.getStatusCode(), httpResponse.statusCode());
+        }
+
+        private static byte[] gzip(String entity) throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (GZIPOutputStream stream = new GZIPOutputStream(bytes)) {
+                stream.write(entity.getBytes());
+            }
+            return bytes.toByteArray();
+        }
+    }
+
     @TestFactory
     public List<DynamicTest> RespondWhenExtensionMissing() {
         List<DynamicTest> tests = new ArrayList<>();
@@ -252,6 +717,11 @@ public class ResourceServletTest extends ServletTest {
             return this;
         }
 
+        public OutboundResponseBuilder mediaType(MediaType mediaType) {
+            this.mediaType = mediaType;
+            return this;
+        }
+
         public OutboundResponseBuilder headers(String name, Object... values) {
             headers.addAll(name, values);
             return this;
@@ -301,4 +771,7 @@ public class ResourceServletTest extends ServletTest {
             });
         }
     }
+
+    record Point(int x, int y) {
+    }
 }
@@ -0,0 +1,138 @@
+package cn.gavin.tdd.restful;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MultivaluedHashMap;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+public class ResponseCacheTest {
+    private ResponseCache cache;
+    private BufferPool buffers;
+    private OutboundResponse response;
+
+    @BeforeEach
+    public void before() {
+        cache = new ResponseCache(16);
+        buffers = new BufferPool(4, 8);
+        response = Mockito.mock(OutboundResponse.class);
+        when(response.getStatus()).thenReturn(200);
+        MultivaluedHashMap<String, Object> headers = new MultivaluedHashMap<>();
+        headers.putSingle(HttpHeaders.CONTENT_TYPE, RenderedHeader.of("text/plain"));
+        when(response.getHeaders()).thenReturn(headers);
+    }
+
+    @Test
+    public void should_serve_stored_response_bytes_and_headers() throws Exception {
+        store(request("/users", null), policy(60, TimeUnit.SECONDS), "hello world");
+
+        ResponseCache.CachedResponse cached = cache.lookup(request("/users", null));
+
+        assertEquals(200, cached.status());
+        assertEquals("hello world", new String(cached.entity()));
+        assertEquals(RenderedHeader.of("text/plain"), cached.headers().getFirst(HttpHeaders.CONTENT_TYPE));
+        assertEquals(0.5, cache.hitRate());
+    }
+
+    @Test
+    public void should_key_responses_by_selected_query_parameters() throws Exception {
+        ResponseCache.Policy policy = policy(60, TimeUnit.SECONDS, "page");
+        store(request("/users", "1"), policy, "page 1");
+
+        assertEquals("page 1", new String(cache.lookup(request("/users", "1")).entity()));
+        assertNull(cache.lookup(request("/users", "2")));
+        assertEquals(1.0 / 3, cache.hitRate(), 0.0001);
+    }
+
+    @Test
+    public void should_evict_expired_response_on_lookup() throws Exception {
+        ResponseCache.Policy policy = policy(0, TimeUnit.SECONDS);
+        store(request("/users", null), policy, "hello");
+
+        assertNull(cache.lookup(request("/users", null)));
+        assertEquals(0, cache.size(policy.method()));
+        assertEquals(0, cache.hitRate());
+    }
+
+    @Test
+    public void should_not_serve_response_of_invalidated_resource_class() throws Exception {
+        store(request("/users", null), policy(60, TimeUnit.SECONDS), "hello");
+
+        cache.invalidate(String.class);
+        assertNotNull(cache.lookup(request("/users", null)));
+
+        cache.invalidate(Resources.class);
+        assertNull(cache.lookup(request("/users", null)));
+    }
+
+    @Test
+    public void should_not_serve_any_response_after_invalidate_all() throws Exception {
+        store(request("/users", null), policy(60, TimeUnit.SECONDS), "hello");
+
+        cache.invalidateAll();
+
+        assertNull(cache.lookup(request("/users", null)));
+    }
+
+    private void store(HttpServletRequest request, ResponseCache.Policy policy, String body) throws IOException {
+        BufferPool.PooledOutputStream content = buffers.newOutputStream();
+        content.write(body.getBytes());
+        cache.store(request, policy, ResponseCache.CachedResponse.of(policy, response, content));
+        content.release();
+    }
+
+    private static HttpServletRequest request(String path, String page) {
+        HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
+        when(request.getServletPath()).thenReturn(path);
+        when(request.getHeaders(eq(HttpHeaders.ACCEPT))).thenAnswer(invocation -> Collections.enumeration(Collections.singletonList("text/plain")));
+        when(request.getParameterValues(eq("page"))).thenReturn(page == null ? null : new String[]{page});
+        return request;
+    }
+
+    private static ResponseCache.Policy policy(long ttl, TimeUnit unit, String... query) throws NoSuchMethodException {
+        Method method = Resources.class.getMethod("get");
+        return new ResponseCache.Policy(method, new Cached() {
+            @Override
+            public long ttl() {
+                return ttl;
+            }
+
+            @Override
+            public TimeUnit unit() {
+                return unit;
+            }
+
+            @Override
+            public int maxEntries() {
+                return 16;
+            }
+
+            @Override
+            public String[] query() {
+                return query;
+            }
+
+            @Override
+            public Class<? extends Annotation> annotationType() {
+                return Cached.class;
+            }
+        }, false, "text/plain");
+    }
+
+    static class Resources {
+        public String get() {
+            return "";
+        }
+    }
+}
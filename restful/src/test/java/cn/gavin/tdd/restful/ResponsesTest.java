@@ -0,0 +1,51 @@
+package cn.gavin.tdd.restful;
+
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.ext.RuntimeDelegate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+public class ResponsesTest {
+    private RuntimeDelegate delegate;
+
+    @BeforeEach
+    public void before() {
+        delegate = Mockito.mock(RuntimeDelegate.class);
+        RuntimeDelegate.setInstance(delegate);
+        when(delegate.createResponseBuilder()).thenAnswer(invocation -> new StudResponseBuilder());
+    }
+
+    @Test
+    public void should_reuse_response_for_common_status() {
+        assertSame(Responses.notFound(), Responses.notFound());
+        assertSame(Responses.noContent(), Responses.status(204));
+        assertEquals(Response.Status.METHOD_NOT_ALLOWED.getStatusCode(), Responses.methodNotAllowed().getStatus());
+        assertEquals(Response.Status.NOT_ACCEPTABLE.getStatusCode(), Responses.notAcceptable().getStatus());
+    }
+
+    @Test
+    public void should_not_reuse_response_for_other_status() {
+        assertNotSame(Responses.status(Response.Status.FORBIDDEN), Responses.status(Response.Status.FORBIDDEN));
+    }
+
+    @Test
+    public void should_rebuild_cached_response_if_runtime_delegate_changed() {
+        OutboundResponse response = Responses.notFound();
+
+        before();
+
+        assertNotSame(response, Responses.notFound());
+    }
+
+    @Test
+    public void should_not_fill_stack_trace_for_stackless_exception() {
+        StacklessWebApplicationException exception = new StacklessWebApplicationException(404);
+
+        assertEquals(0, exception.getStackTrace().length);
+        assertSame(Responses.notFound(), exception.getResponse());
+    }
+}
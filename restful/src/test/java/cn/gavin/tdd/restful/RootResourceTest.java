@@ -46,7 +46,7 @@ public class RootResourceTest {
         ResourceRouter.Resource resource = new ResourceHandler(Messages.class);
         UriTemplate.MatchResult result = resource.getUriTemplate().match(path).get();
 
-        ResourceRouter.ResourceMethod method = resource.match(result, httpMethod, new String[]{MediaType.TEXT_PLAIN}, resourceContext, builder).get();
+        ResourceRouter.ResourceMethod method = resource.match(result, httpMethod, null, new String[]{MediaType.TEXT_PLAIN}, resourceContext, builder).get();
 
         assertEquals(resourceMethod, method.toString());
     }
@@ -63,7 +63,7 @@ public class RootResourceTest {
         ResourceRouter.Resource resource = new ResourceHandler(Messages.class);
         UriTemplate.MatchResult result = resource.getUriTemplate().match(uri).get();
 
-        assertTrue(resource.match(result, httpMethod, new String[]{MediaType.TEXT_PLAIN}, resourceContext, builder).isEmpty());
+        assertTrue(resource.match(result, httpMethod, null, new String[]{MediaType.TEXT_PLAIN}, resourceContext, builder).isEmpty());
     }
 
     @Test
@@ -73,7 +73,7 @@ public class RootResourceTest {
         ResourceRouter.Resource resource = new ResourceHandler(Messages.class);
         UriTemplate.MatchResult result = resource.getUriTemplate().match("/messages").get();
 
-        resource.match(result, "GET", new String[]{MediaType.TEXT_PLAIN}, resourceContext, uriInfoBuilder);
+        resource.match(result, "GET", null, new String[]{MediaType.TEXT_PLAIN}, resourceContext, uriInfoBuilder);
 
         assertTrue(uriInfoBuilder.getLastMatchedResource() instanceof Messages);
     }
@@ -85,7 +85,7 @@ public class RootResourceTest {
         ResourceRouter.Resource resource = new ResourceHandler(Messages.class);
         UriTemplate.MatchResult result = resource.getUriTemplate().match("/messages/1").get();
 
-        resource.match(result, "GET", new String[]{MediaType.TEXT_PLAIN}, resourceContext, uriInfoBuilder);
+        resource.match(result, "GET", null, new String[]{MediaType.TEXT_PLAIN}, resourceContext, uriInfoBuilder);
 
         assertTrue(uriInfoBuilder.getLastMatchedResource() instanceof Message);
 
@@ -0,0 +1,134 @@
+package cn.gavin.tdd.restful;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.PathParam;
+import jakarta.ws.rs.container.ResourceContext;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.ext.RuntimeDelegate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.List;
+import java.util.Vector;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+public class RouteCacheTest {
+    private Runtime runtime;
+    private ResourceContext context;
+    private BoundedCache<DefaultResourceRouter.RouteKey, Route> routes;
+    private ResourceRouter router;
+    private static int locatorCalls;
+
+    @BeforeEach
+    public void before() {
+        RuntimeDelegate delegate = Mockito.mock(RuntimeDelegate.class);
+        RuntimeDelegate.setInstance(delegate);
+        when(delegate.createResponseBuilder()).thenAnswer(invocation -> new StudResponseBuilder());
+
+        runtime = Mockito.mock(Runtime.class);
+        context = Mockito.mock(ResourceContext.class);
+        when(runtime.createUriInfoBuilder(any())).thenAnswer(invocation -> new StubUriInfoBuilder());
+        when(context.getResource(eq(Users.class))).thenReturn(new Users());
+
+        routes = new BoundedCache<>(10);
+        router = new DefaultResourceRouter(runtime, List.of(new ResourceHandler(Users.class)), routes);
+        locatorCalls = 0;
+    }
+
+    @Test
+    public void should_replay_cached_route_for_same_method_and_path() {
+        assertEquals("users", dispatch("/users").getGenericEntity().getEntity());
+        assertEquals("users", dispatch("/users").getGenericEntity().getEntity());
+
+        assertEquals(1, routes.hitCount());
+        assertEquals(1, routes.missCount());
+    }
+
+    @Test
+    public void should_invoke_cacheable_sub_resource_locator_when_replay_route() {
+        assertEquals("john", dispatch("/users/john").getGenericEntity().getEntity());
+        assertEquals("john", dispatch("/users/john").getGenericEntity().getEntity());
+
+        assertEquals(2, locatorCalls);
+        assertEquals(1, routes.hitCount());
+    }
+
+    @Test
+    public void should_match_route_through_non_cacheable_sub_resource_locator_every_time() {
+        assertEquals("orders of john", dispatch("/users/john/orders").getGenericEntity().getEntity());
+        assertEquals("orders of john", dispatch("/users/john/orders").getGenericEntity().getEntity());
+
+        assertEquals(4, locatorCalls);
+    }
+
+    @Test
+    public void should_cache_unmatched_route() {
+        assertEquals(404, dispatch("/customers").getStatus());
+        assertEquals(404, dispatch("/customers").getStatus());
+
+        assertEquals(1, routes.hitCount());
+    }
+
+    private OutboundResponse dispatch(String path) {
+        HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
+        when(request.getServletPath()).thenReturn(path);
+        when(request.getMethod()).thenReturn("GET");
+        when(request.getHeaders(eq(HttpHeaders.ACCEPT))).thenReturn(new Vector<>(List.of(MediaType.WILDCARD)).elements());
+        return router.dispatch(request, context);
+    }
+
+    @Path("/users")
+    public static class Users {
+        @GET
+        public String get() {
+            return "users";
+        }
+
+        @Path("/{id}")
+        @CacheableRoute
+        public User user(@PathParam("id") String id) {
+            locatorCalls++;
+            return new User(id);
+        }
+    }
+
+    public static class User {
+        private final String id;
+
+        public User(String id) {
+            this.id = id;
+        }
+
+        @GET
+        public String get() {
+            return id;
+        }
+
+        @Path("/orders")
+        public Orders orders() {
+            locatorCalls++;
+            return new Orders(id);
+        }
+    }
+
+    public static class Orders {
+        private final String user;
+
+        public Orders(String user) {
+            this.user = user;
+        }
+
+        @GET
+        public String get() {
+            return "orders of " + user;
+        }
+    }
+}
@@ -25,7 +25,9 @@ public abstract class ServletTest {
         server.addConnector(connector);
 
         ServletContextHandler handler = new ServletContextHandler(server, "/");
-        handler.addServlet(new ServletHolder(getServlet()), "/");
+        ServletHolder holder = new ServletHolder(getServlet());
+        holder.setAsyncSupported(true);
+        handler.addServlet(holder, "/");
         server.setHandler(handler);
         server.start();
     }
@@ -41,11 +43,25 @@ public abstract class ServletTest {
         return new URL(new URL("http://localhost:8080"), path).toURI();
     }
 
-    protected HttpResponse<String> get(String path) {
+    protected HttpResponse<String> get(String path, String... headers) {
+        return get(path, HttpResponse.BodyHandlers.ofString(), headers);
+    }
+
+    protected <T> HttpResponse<T> get(String path, HttpResponse.BodyHandler<T> handler, String... headers) {
+        return send(path, "GET", HttpRequest.BodyPublishers.noBody(), handler, headers);
+    }
+
+    protected HttpResponse<String> post(String path, byte[] body, String... headers) {
+        return send(path, "POST", HttpRequest.BodyPublishers.ofByteArray(body), HttpResponse.BodyHandlers.ofString(), headers);
+    }
+
+    private <T> HttpResponse<T> send(String path, String method, HttpRequest.BodyPublisher body, HttpResponse.BodyHandler<T> handler, String... headers) {
         try {
             HttpClient client = HttpClient.newHttpClient();
-            HttpRequest request = HttpRequest.newBuilder(path(path)).GET().build();
-            return client.send(request, HttpResponse.BodyHandlers.ofString());
+            HttpRequest.Builder builder = HttpRequest.newBuilder(path(path)).method(method, body);
+            if (headers.length > 0) builder.headers(headers);
+            HttpRequest request = builder.build();
+            return client.send(request, handler);
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
@@ -0,0 +1,88 @@
+package cn.gavin.tdd.restful;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MultivaluedHashMap;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.time.Duration;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+public class SingleFlightTest {
+    private SingleFlight flights;
+    private ResponseCache.Policy policy;
+
+    @BeforeEach
+    public void before() throws Exception {
+        flights = new SingleFlight();
+        policy = new ResponseCache.Policy(Resources.class.getMethod("get"), null, true, "text/plain");
+    }
+
+    @Test
+    public void should_make_identical_concurrent_request_follow_leader() {
+
+        SingleFlight.Flight leader = flights.join(request("/users", null), policy);
+        SingleFlight.Flight follower = flights.join(request("/users", null), policy);
+
+        assertTrue(leader.isLeader());
+        assertFalse(follower.isLeader());
+        ResponseCache.CachedResponse response = response();
+        leader.land(response);
+        assertSame(response, follower.result().join());
+        assertEquals(0, flights.inFlight());
+    }
+
+    @Test
+    public void should_not_coalesce_requests_with_different_query() {
+
+        assertTrue(flights.join(request("/users", "page=1"), policy).isLeader());
+        assertTrue(flights.join(request("/users", "page=2"), policy).isLeader());
+    }
+
+    @Test
+    public void should_release_followers_without_response_if_leader_failed() {
+        SingleFlight.Flight leader = flights.join(request("/users", null), policy);
+        SingleFlight.Flight follower = flights.join(request("/users", null), policy);
+
+        leader.land(null);
+        leader.land(response());
+
+        assertNull(follower.result().join());
+        assertTrue(flights.join(request("/users", null), policy).isLeader());
+    }
+
+    @Test
+    public void should_release_waiting_follower_without_response_after_patience_runs_out() {
+        flights = new SingleFlight(Duration.ofMillis(10));
+        SingleFlight.Flight leader = flights.join(request("/users", null), policy);
+        SingleFlight.Flight follower = flights.join(request("/users", null), policy);
+
+        assertNull(follower.await().join());
+        assertFalse(leader.result().isDone());
+        assertFalse(flights.join(request("/users", null), policy).isLeader());
+    }
+
+    private static ResponseCache.CachedResponse response() {
+        return new ResponseCache.CachedResponse(200, new MultivaluedHashMap<>(), null, new byte[0], 0);
+    }
+
+    private static HttpServletRequest request(String path, String query) {
+        HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
+        when(request.getServletPath()).thenReturn(path);
+        when(request.getQueryString()).thenReturn(query);
+        when(request.getHeaders(eq(HttpHeaders.ACCEPT))).thenAnswer(invocation -> Collections.enumeration(Collections.singletonList("text/plain")));
+        return request;
+    }
+
+    static class Resources {
+        public String get() {
+            return "";
+        }
+    }
+}
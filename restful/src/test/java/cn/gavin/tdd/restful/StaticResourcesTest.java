@@ -0,0 +1,148 @@
+package cn.gavin.tdd.restful;
+
+import jakarta.ws.rs.container.ResourceContext;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.ext.RuntimeDelegate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+public class StaticResourcesTest {
+    @TempDir
+    Path root;
+
+    private ResourceContext context;
+    private StaticResources resources;
+
+    @BeforeEach
+    public void before() {
+        RuntimeDelegate delegate = Mockito.mock(RuntimeDelegate.class);
+        RuntimeDelegate.setInstance(delegate);
+        when(delegate.createResponseBuilder()).thenAnswer(invocation -> new StudResponseBuilder());
+
+        context = Mockito.mock(ResourceContext.class);
+        resources = new StaticResources("/assets", root, 1024, 16, Duration.ZERO);
+    }
+
+    @Test
+    public void should_serve_small_file_from_heap_buffer() throws Exception {
+        Files.writeString(root.resolve("hello.txt"), "hello");
+
+        OutboundResponse response = get("/assets/hello.txt");
+
+        assertEquals(200, response.getStatus());
+        assertEquals("hello", body(response));
+        assertEquals(RenderedHeader.of("text/plain"), response.getHeaders().getFirst(HttpHeaders.CONTENT_TYPE));
+        assertNotNull(response.getHeaders().getFirst(HttpHeaders.ETAG));
+        assertNotNull(response.getHeaders().getFirst(HttpHeaders.LAST_MODIFIED));
+    }
+
+    @Test
+    public void should_serve_index_for_directory() throws Exception {
+        Files.writeString(root.resolve("index.html"), "<html/>");
+
+        assertEquals("<html/>", body(get("/assets")));
+    }
+
+    @Test
+    public void should_not_match_outside_root() throws Exception {
+        Files.writeString(root.getParent().resolve("secret.txt"), "secret");
+
+        assertTrue(match("/assets/../secret.txt", "GET").isEmpty());
+        assertTrue(match("/assets/missing.txt", "GET").isEmpty());
+    }
+
+    @Test
+    public void should_only_match_get_and_head() throws Exception {
+        Files.writeString(root.resolve("hello.txt"), "hello");
+
+        assertTrue(match("/assets/hello.txt", "POST").isEmpty());
+        OutboundResponse response = call(match("/assets/hello.txt", "HEAD"));
+        assertNull(response.getGenericEntity());
+        assertEquals(RenderedHeader.of("5"), response.getHeaders().getFirst(HttpHeaders.CONTENT_LENGTH));
+    }
+
+    @Test
+    public void should_offer_precomputed_gzip_variant_for_compressible_file() throws Exception {
+        String content = "compressible ".repeat(50);
+        Files.writeString(root.resolve("large.txt"), content);
+
+        OutboundResponse response = get("/assets/large.txt");
+
+        assertEquals(RenderedHeader.of(HttpHeaders.ACCEPT_ENCODING), response.getHeaders().getFirst(HttpHeaders.VARY));
+        StaticResources.Variants variants = (StaticResources.Variants) response.getGenericEntity().getEntity();
+        assertEquals(content, StandardCharsets.UTF_8.decode(variants.identity()).toString());
+        byte[] bytes = new byte[variants.gzip().remaining()];
+        variants.gzip().get(bytes);
+        assertEquals(content, new String(new GZIPInputStream(new ByteArrayInputStream(bytes)).readAllBytes(), StandardCharsets.UTF_8));
+        assertNotEquals(response.getHeaders().getFirst(HttpHeaders.ETAG), variants.gzipEtag());
+    }
+
+    @Test
+    public void should_cache_small_files_and_revalidate_on_modification() throws Exception {
+        Path file = Files.writeString(root.resolve("hello.txt"), "hello");
+        Object etag = get("/assets/hello.txt").getHeaders().getFirst(HttpHeaders.ETAG);
+        get("/assets/hello.txt");
+        assertEquals(0.5, resources.hitRate());
+
+        Files.writeString(file, "changed");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 1000));
+        OutboundResponse response = get("/assets/hello.txt");
+
+        assertEquals("changed", body(response));
+        assertNotEquals(etag, response.getHeaders().getFirst(HttpHeaders.ETAG));
+    }
+
+    @Test
+    public void should_not_stat_cached_file_within_revalidation_interval() throws Exception {
+        resources = new StaticResources("/assets", root, 1024, 16, Duration.ofHours(1));
+        Path file = Files.writeString(root.resolve("hello.txt"), "hello");
+        get("/assets/hello.txt");
+
+        Files.delete(file);
+
+        assertEquals("hello", body(get("/assets/hello.txt")));
+    }
+
+    @Test
+    public void should_serve_large_file_as_path() throws Exception {
+        Path file = Files.writeString(root.resolve("large.bin"), "0".repeat(2048));
+
+        OutboundResponse response = get("/assets/large.bin");
+
+        assertEquals(file, response.getGenericEntity().getEntity());
+        get("/assets/large.bin");
+        assertEquals(0, resources.hitRate());
+    }
+
+    private OutboundResponse get(String path) {
+        return call(match(path, "GET"));
+    }
+
+    private Optional<ResourceRouter.ResourceMethod> match(String path, String method) {
+        return resources.match(resources.getUriTemplate().match(path).get(), method, null, new String[0], context, Mockito.mock(UriInfoBuilder.class));
+    }
+
+    private OutboundResponse call(Optional<ResourceRouter.ResourceMethod> method) {
+        return (OutboundResponse) method.get().call(context, Mockito.mock(UriInfoBuilder.class)).getEntity();
+    }
+
+    private static String body(OutboundResponse response) {
+        ByteBuffer buffer = ((ByteBuffer) response.getGenericEntity().getEntity()).duplicate();
+        return StandardCharsets.UTF_8.decode(buffer).toString();
+    }
+}
@@ -13,6 +13,7 @@ public class StudResponseBuilder extends Response.ResponseBuilder {
     private GenericEntity entity;
     private int status;
     private Set<String> allowed = new HashSet<>();
+    private MultivaluedMap<String, Object> headers = new MultivaluedHashMap<>();
 
     @Override
     public Response build() {
@@ -22,7 +23,7 @@ public class StudResponseBuilder extends Response.ResponseBuilder {
         when(response.getStatusInfo()).thenReturn(Response.Status.fromStatusCode(status));
         when(response.getAllowedMethods()).thenReturn(allowed);
         when(response.getGenericEntity()).thenReturn((GenericEntity) entity);
-        when(response.getHeaders()).thenReturn(new MultivaluedHashMap<>());
+        when(response.getHeaders()).thenReturn(headers);
         return response;
     }
 
@@ -77,6 +78,7 @@ public class StudResponseBuilder extends Response.ResponseBuilder {
 
     @Override
     public Response.ResponseBuilder header(String name, Object value) {
+        headers.add(name, value);
         return this;
     }
 
@@ -48,7 +48,7 @@ public class SubResourceLocatorTest extends InjectableCallerTest {
     @Override
     protected void callInjectable(String method, Class<?> type) throws NoSuchMethodException {
         SubResourceLocators.SubResourceLocator locator = new SubResourceLocators.SubResourceLocator(SubResourceMethods.class.getMethod(method, type));
-        locator.match(result, "GET", new String[0], context, builder);
+        locator.match(result, "GET", null, new String[0], context, builder);
     }
 
     @Test
@@ -23,7 +23,7 @@ public class SubResourceLocatorsTest {
 
         SubResourceLocators locators = new SubResourceLocators(Messages.class.getMethods());
 
-        assertTrue(locators.findSubResourceMethods(path, "GET", new String[]{MediaType.TEXT_PLAIN},
+        assertTrue(locators.findSubResourceMethods(path, "GET", null, new String[]{MediaType.TEXT_PLAIN},
                 Mockito.mock(ResourceContext.class), builder).isPresent());
 
         assertEquals(message, ((Message) builder.getLastMatchedResource()).message);
@@ -40,7 +40,7 @@ public class SubResourceLocatorsTest {
 
         SubResourceLocators locators = new SubResourceLocators(Messages.class.getMethods());
 
-        assertFalse(locators.findSubResourceMethods(path, "GET", new String[]{MediaType.TEXT_PLAIN},
+        assertFalse(locators.findSubResourceMethods(path, "GET", null, new String[]{MediaType.TEXT_PLAIN},
                 Mockito.mock(ResourceContext.class), builder).isPresent());
     }
 
@@ -0,0 +1,116 @@
+package cn.gavin.tdd.restful;
+
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.container.CompletionCallback;
+import jakarta.ws.rs.container.ConnectionCallback;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.ext.RuntimeDelegate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+public class SuspendedResponseTest {
+    private SuspendedResponse response;
+
+    @BeforeEach
+    public void before() {
+        RuntimeDelegate delegate = Mockito.mock(RuntimeDelegate.class);
+        RuntimeDelegate.setInstance(delegate);
+        when(delegate.createResponseBuilder()).thenAnswer(invocation -> new StudResponseBuilder());
+        response = new SuspendedResponse();
+    }
+
+    @Test
+    public void should_complete_stage_when_resumed() {
+        assertTrue(response.isSuspended());
+        assertTrue(response.resume("resumed"));
+
+        assertFalse(response.resume("again"));
+        assertTrue(response.isDone());
+        assertEquals("resumed", response.stage().toCompletableFuture().join());
+    }
+
+    @Test
+    public void should_complete_with_service_unavailable_when_cancelled() {
+        assertTrue(response.cancel());
+
+        assertTrue(response.isCancelled());
+        assertEquals(503, ((Response) response.stage().toCompletableFuture().join()).getStatus());
+    }
+
+    @Test
+    public void should_resume_with_service_unavailable_when_timeout_without_handler() {
+        response.setTimeout(10, TimeUnit.MILLISECONDS);
+
+        CompletionException exception = assertThrows(CompletionException.class, () -> response.stage().toCompletableFuture().join());
+        assertEquals(503, ((WebApplicationException) exception.getCause()).getResponse().getStatus());
+    }
+
+    @Test
+    public void should_call_timeout_handler_when_timeout() {
+        response.setTimeoutHandler(suspended -> suspended.resume("timeout"));
+        response.setTimeout(10, TimeUnit.MILLISECONDS);
+
+        assertEquals("timeout", response.stage().toCompletableFuture().join());
+    }
+
+    @Test
+    public void should_notify_completion_callback_after_response_written() {
+        AtomicReference<Throwable> completed = new AtomicReference<>();
+        AtomicInteger notified = new AtomicInteger();
+        CompletionCallback callback = throwable -> {
+            completed.set(throwable);
+            notified.incrementAndGet();
+        };
+
+        assertEquals(List.of(CompletionCallback.class), response.register(callback));
+        response.resume("resumed");
+        assertEquals(0, notified.get());
+
+        SuspendedResponse.Pending<?> written = (SuspendedResponse.Pending<?>) response.stage().thenApply(value -> value);
+        written.onComplete(null);
+        written.onComplete(null);
+
+        assertEquals(1, notified.get());
+        assertNull(completed.get());
+    }
+
+    @Test
+    public void should_notify_completion_callback_with_unmapped_error() {
+        AtomicReference<Throwable> completed = new AtomicReference<>();
+        IllegalStateException error = new IllegalStateException();
+        response.register((CompletionCallback) completed::set);
+        response.resume(error);
+
+        ((SuspendedResponse.Pending<?>) response.stage()).completed();
+
+        assertSame(error, completed.get());
+    }
+
+    @Test
+    public void should_notify_completion_callback_registered_after_completion() {
+        AtomicReference<Throwable> completed = new AtomicReference<>(new IllegalStateException());
+        response.resume("resumed");
+        ((SuspendedResponse.Pending<?>) response.stage()).completed();
+
+        response.register((CompletionCallback) completed::set);
+
+        assertNull(completed.get());
+    }
+
+    @Test
+    public void should_reject_unsupported_callbacks() {
+        assertThrows(UnsupportedOperationException.class, () -> response.register((ConnectionCallback) disconnected -> {
+        }));
+        assertThrows(IllegalArgumentException.class, () -> response.register(new Object()));
+    }
+}
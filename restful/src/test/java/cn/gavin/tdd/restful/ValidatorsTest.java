@@ -0,0 +1,48 @@
+package cn.gavin.tdd.restful;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ValidatorsTest {
+    @Test
+    public void should_use_version_as_weak_etag() {
+        Validators validators = Validators.of(42);
+
+        assertEquals(RenderedHeader.of("W/\"42\""), validators.etag());
+        assertNull(validators.lastModified());
+    }
+
+    @Test
+    public void should_escape_characters_not_allowed_in_etag() {
+        assertEquals(RenderedHeader.of("W/\"a%22b%20c%25d%c3%a9\""), Validators.of("a\"b c%dé").etag());
+    }
+
+    @Test
+    public void should_use_temporal_version_as_last_modified() {
+        Validators validators = Validators.of(Date.from(Instant.parse("2022-10-27T08:15:30.500Z")));
+
+        assertNull(validators.etag());
+        assertEquals(RenderedHeader.of("Thu, 27 Oct 2022 08:15:30 GMT"), validators.lastModifiedHeader());
+    }
+
+    @Test
+    public void should_match_if_none_match_with_weak_comparison() {
+        assertTrue(Validators.matches("\"a\", W/\"b\"", "\"b\""));
+        assertTrue(Validators.matches("*", "\"b\""));
+        assertFalse(Validators.matches("\"a\"", "W/\"b\""));
+    }
+
+    @Test
+    public void should_evaluate_if_modified_since_only_without_if_none_match() {
+        Validators validators = Validators.of(Instant.parse("2022-10-27T08:15:30Z"));
+
+        assertTrue(validators.isNotModified(null, "Thu, 27 Oct 2022 08:15:30 GMT"));
+        assertFalse(validators.isNotModified(null, "Thu, 27 Oct 2022 08:15:29 GMT"));
+        assertFalse(validators.isNotModified("\"a\"", "Thu, 27 Oct 2022 08:15:30 GMT"));
+        assertFalse(validators.isNotModified(null, "yesterday"));
+    }
+}